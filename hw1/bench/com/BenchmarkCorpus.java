@@ -0,0 +1,134 @@
+package com;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Seeded corpus of 4x4 boards grouped by optimal solution length, shared by the
+ * com and provided benchmarks so both solvers see exactly the same instances.
+ *
+ * Deep boards with an exact optimal length are rare among random walks, so the
+ * corpus is generated once by main and checked in as corpus-4x4.txt next to this
+ * class: one board per line, its optimal length first, then the cells in
+ * row-major order with 0 for the blank. The same seed always regenerates the
+ * same file.
+ */
+public final class BenchmarkCorpus {
+    public static final long SEED = 2018;
+    public static final int WIDTH = 4;
+    public static final int[] DEPTHS = {20, 30, 40, 50};
+    public static final int BOARDS_PER_DEPTH = 16;
+
+    private static final String FILE = "corpus-4x4.txt";
+    private static Map<Integer, int[][]> byDepth;
+
+    private BenchmarkCorpus() {
+    }
+
+    /** The boards (flat, row-major, BLANK for the blank) that need exactly `depth` moves */
+    public static synchronized int[][] boards(int depth) {
+        if (byDepth == null)
+            byDepth = load();
+        int[][] boards = byDepth.get(depth);
+        if (boards == null)
+            throw new IllegalArgumentException("No boards of depth " + depth + " in " + FILE);
+        return boards.clone();
+    }
+
+    private static Map<Integer, int[][]> load() {
+        Map<Integer, List<int[]>> lists = new HashMap<>();
+        try (InputStream in = BenchmarkCorpus.class.getResourceAsStream(FILE)) {
+            if (in == null)
+                throw new IOException(FILE + " is not on the classpath; run BenchmarkCorpus.main");
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                String[] fields = line.trim().split("\\s+");
+                int[] board = new int[fields.length - 1];
+                for (int i = 0; i < board.length; i++) {
+                    board[i] = Integer.parseInt(fields[i + 1]);
+                }
+                lists.computeIfAbsent(Integer.parseInt(fields[0]), d -> new ArrayList<>()).add(board);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Map<Integer, int[][]> boards = new HashMap<>();
+        for (Map.Entry<Integer, List<int[]>> e : lists.entrySet()) {
+            boards.put(e.getKey(), e.getValue().toArray(new int[0][]));
+        }
+        return boards;
+    }
+
+    /** Board as a 2-D [row][column] array, the layout provided.NumberPuzzle uses */
+    public static int[][] rows(int[] board) {
+        int[][] rows = new int[WIDTH][WIDTH];
+        for (int cell = 0; cell < board.length; cell++) {
+            rows[cell / WIDTH][cell % WIDTH] = board[cell];
+        }
+        return rows;
+    }
+
+    static NumberPuzzle puzzle(int[] board) {
+        long state = 0;
+        for (int cell = 0; cell < board.length; cell++) {
+            state |= (long) board[cell] << (cell * PackedBoard.BITS);
+        }
+        return NumberPuzzle.unpack(state, WIDTH);
+    }
+
+    /**
+     * Regenerates the corpus file at the given path (default bench/com/corpus-4x4.txt).
+     * Boards come from random walks from the goal, solved with IDA* and walking
+     * distance; each one fills the group of its optimal length if that is still
+     * short of BOARDS_PER_DEPTH. Takes about ten minutes, nearly all of it for the
+     * 50-move group.
+     */
+    public static void main(String[] args) throws IOException {
+        String path = (args.length > 0) ? args[0] : "bench/com/" + FILE;
+        Random rng = new Random(SEED);
+        PackedBoard packed = PackedBoard.forWidth(WIDTH);
+        NumberPuzzle goal = new NumberPuzzle(WIDTH);
+        Map<Integer, List<int[]>> groups = new HashMap<>();
+        for (int depth : DEPTHS) {
+            groups.put(depth, new ArrayList<>());
+        }
+        for (int depth : DEPTHS) {
+            List<int[]> group = groups.get(depth);
+            while (group.size() < BOARDS_PER_DEPTH) {
+                // Walks a little longer than the target land on it most often
+                long state = packed.randomWalk(rng, depth + rng.nextInt(depth + 1));
+                int[] board = new int[packed.cells];
+                packed.unpack(state, board);
+                Heuristic heuristic = goal.heuristic(NumberPuzzle.HeuristicKind.WALKING_DISTANCE);
+                if (heuristic.estimate(board) > depth)
+                    continue;
+                List<int[]> fits = groups.get(new IDAStar(WIDTH, heuristic).solve(board).length);
+                if (fits != null && fits.size() < BOARDS_PER_DEPTH)
+                    fits.add(board);
+            }
+        }
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(path), StandardCharsets.US_ASCII))) {
+            for (int depth : DEPTHS) {
+                for (int[] board : groups.get(depth)) {
+                    StringBuilder line = new StringBuilder().append(depth);
+                    for (int tile : board) {
+                        line.append(' ').append(tile);
+                    }
+                    out.println(line);
+                }
+            }
+        }
+    }
+}
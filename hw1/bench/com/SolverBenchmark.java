@@ -0,0 +1,99 @@
+package com;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH throughput of the com solvers over BenchmarkCorpus.
+ *
+ * One operation solves the next board of the group for `depth`, cycling through
+ * the group, so ops/s is solves per second. The `expansions` counter reports
+ * nodes expanded per second, and the GC profiler (added by main, or -prof gc)
+ * reports the allocation rate as gc.alloc.rate.norm bytes per solve.
+ *
+ * hw1/pom.xml builds it: bench/ is an extra source root next to src/, and
+ * jmh-generator-annprocess runs on it. After `mvn package`, run this class's
+ * main from target/benchmarks.jar, or the jar itself for JMH's command line.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+public class SolverBenchmark {
+    @Param({"20", "30", "40", "50"})
+    public int depth;
+
+    @Param({"ASTAR", "IDA_STAR", "BIDIRECTIONAL"})
+    public String search;
+
+    @Param({"MANHATTAN", "LINEAR_CONFLICT", "WALKING_DISTANCE"})
+    public String heuristic;
+
+    private NumberPuzzle[] puzzles;
+    private Heuristic[] heuristics;
+    private NumberPuzzle.Search mode;
+    private int next;
+
+    /** Reported per second next to the primary ops/s score */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long expansions;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            expansions = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int[][] boards = BenchmarkCorpus.boards(depth);
+        mode = NumberPuzzle.Search.valueOf(search);
+        NumberPuzzle.HeuristicKind kind = NumberPuzzle.HeuristicKind.valueOf(heuristic);
+        puzzles = new NumberPuzzle[boards.length];
+        heuristics = new Heuristic[boards.length];
+        for (int i = 0; i < boards.length; i++) {
+            puzzles[i] = BenchmarkCorpus.puzzle(boards[i]);
+            heuristics[i] = puzzles[i].heuristic(kind);
+        }
+    }
+
+    @Benchmark
+    public int solve(Counters counters) {
+        int i = next;
+        next = (i + 1) % puzzles.length;
+        Solution solution = puzzles[i].solution(mode, heuristics[i], SearchBudget.unlimited());
+        counters.expansions += solution.stats.expanded;
+        return solution.length();
+    }
+
+    /** Runs this suite and provided.ProvidedBenchmark with the GC profiler */
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include("com\\.SolverBenchmark|provided\\.ProvidedBenchmark")
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
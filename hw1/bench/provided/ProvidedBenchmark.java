@@ -0,0 +1,73 @@
+package provided;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.BenchmarkCorpus;
+
+/**
+ * JMH throughput of the provided solver on the same corpus as com.SolverBenchmark.
+ * One operation is one NumberPuzzle.solve, the solver's own entry point, so the
+ * classes declared inside provided/NumberPuzzle.java are never named here;
+ * `expansions` counts the states its A* visited. Run through
+ * com.SolverBenchmark.main to get the GC profiler as well. JMH's State
+ * annotation is spelled out because provided already has a State class.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+public class ProvidedBenchmark {
+  // Hamming on the provided solver gets very slow past about 40 moves
+  @Param({"20", "30", "40"})
+  public int depth;
+
+  @Param({"false", "true"})
+  public boolean manhattan;
+
+  private NumberPuzzle[] puzzles;
+  private int next;
+
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @org.openjdk.jmh.annotations.State(Scope.Thread)
+  public static class Counters {
+    public long expansions;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      expansions = 0;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    int[][] boards = BenchmarkCorpus.boards(depth);
+    puzzles = new NumberPuzzle[boards.length];
+    for (int i = 0; i < boards.length; i++) {
+      puzzles[i] = new NumberPuzzle(BenchmarkCorpus.rows(boards[i]));
+    }
+  }
+
+  @Benchmark
+  public long solve(Counters counters) {
+    int i = next;
+    next = (i + 1) % puzzles.length;
+    long visited = puzzles[i].solve(manhattan).getVisited();
+    counters.expansions += visited;
+    return visited;
+  }
+}
@@ -0,0 +1,210 @@
+package com;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Anytime Repairing A* (ARA*, Likhachev et al. 2003).
+ *
+ * A series of weighted A* searches, ordered on g + w*h with w falling from
+ * START_WEIGHT to 1 in WEIGHT_STEP steps. The first, greedy pass finds some
+ * solution quickly; every later pass keeps the g values, parents and frontier
+ * of the ones before it, so it only repairs what the lower weight changes.
+ * Within a weighted pass each state is expanded at most once: a state that gets
+ * cheaper after it was expanded goes on an inconsistent list and is put back on
+ * the frontier when the next pass starts. The last pass, at w = 1, reopens such
+ * states straight away, as plain A* does, so its solution is optimal even under
+ * a heuristic that is admissible but not consistent (a pattern database).
+ *
+ * After each pass the listener gets the best solution so far and a proven bound
+ * on its length over the optimal one: min(w, length / lowest g + h on the
+ * frontier or inconsistent list). The bound reaches 1 once the solution is
+ * optimal. When the budget runs out, solve returns the best solution found
+ * instead of failing, including one the interrupted pass had just reached, and
+ * only throws SearchBudget.Exceeded if no pass has reached the goal yet.
+ */
+final class AnytimeSearch {
+    /** Weights in tenths, so keys stay integers */
+    static final int START_WEIGHT = 30;
+    static final int WEIGHT_STEP = 5;
+    private static final int UNIT = 10;
+
+    /** Receives every improvement: a shorter solution, or a tighter bound on the same one */
+    interface Listener {
+        void improved(Solution solution, double bound);
+    }
+
+    private final NumberPuzzle puzzle;
+    private final PackedBoard packed;
+    private final Heuristic heuristic;
+    private final SearchBudget budget;
+    private final SearchStats stats;
+    private final Listener listener;
+
+    private int weight = START_WEIGHT;
+    private final IndexedHeap open = new IndexedHeap(9999, (n1, n2) -> {
+        int cost = key(n1) - key(n2);
+        if (cost == 0)
+            cost = n1.h - n2.h;
+        return cost;
+    });
+    /** g and move of every known state that is not on the frontier */
+    private final ClosedList settled = new ClosedList(9999);
+    /** States expanded in the current pass; only membership matters */
+    private final VisitedSet closed;
+    private final List<NumberPuzzle.Node> inconsistent = new ArrayList<>();
+
+    private long start;
+    private int goalG = Integer.MAX_VALUE;
+    private int[] best;
+    private double bestBound = Double.POSITIVE_INFINITY;
+
+    private final long[] childStates = new long[PackedBoard.NUM_MOVES];
+    private final int[] childBlanks = new int[PackedBoard.NUM_MOVES];
+    private final int[] board;
+
+    /** listener may be null */
+    AnytimeSearch(NumberPuzzle puzzle, Heuristic heuristic, SearchBudget budget, SearchStats stats,
+            Listener listener) {
+        this.puzzle = puzzle;
+        this.packed = PackedBoard.forWidth(puzzle.width());
+        this.heuristic = heuristic;
+        this.budget = budget;
+        this.stats = stats;
+        this.listener = listener;
+        this.board = new int[packed.cells];
+        this.closed = new VisitedSet(packed.width, 9999);
+    }
+
+    private int key(NumberPuzzle.Node n) {
+        return UNIT * n.g + weight * n.h;
+    }
+
+    /**
+     * The best moves to the goal found before the weight reached 1 or the budget
+     * ran out, or null if there is no solution. Leaves the bound of the returned
+     * moves in stats.bound.
+     */
+    int[] solve() {
+        if (!puzzle.isSolvable())
+            return null;
+        start = puzzle.pack();
+        if (start == packed.goal) {
+            stats.bound = 1;
+            return new int[0];
+        }
+        packed.unpack(start, board);
+        open.add(new NumberPuzzle.Node(start, packed.findBlank(start), PackedBoard.NO_MOVE, 0,
+                heuristic.estimate(board)));
+        try {
+            while (true) {
+                improvePath();
+                publish();
+                if (weight == UNIT || bestBound <= 1)
+                    break;
+                weight = Math.max(UNIT, weight - WEIGHT_STEP);
+                // The next pass starts from the frontier plus whatever got cheaper after expansion
+                for (NumberPuzzle.Node n : inconsistent) {
+                    int entry = settled.get(n.state);
+                    if (entry != ClosedList.ABSENT && ClosedList.g(entry) == n.g && !open.contains(n.state)) {
+                        settled.remove(n.state);
+                        open.add(n);
+                    }
+                }
+                inconsistent.clear();
+                open.reorder();
+                closed.clear(settled.size());
+            }
+        } catch (SearchBudget.Exceeded e) {
+            // The budget is charged before an expansion starts, so the frontier is
+            // whole here and a goal this pass reached can still be backtracked
+            publish();
+            if (best == null)
+                throw e;
+        }
+        return best;
+    }
+
+    /** Weighted A* pass until no frontier node could give a goal key below the incumbent's */
+    private void improvePath() {
+        while (!open.isEmpty() && UNIT * (long) goalG > key(open.peek())) {
+            budget.charge(++stats.expanded);
+            NumberPuzzle.Node current = open.poll();
+            settled.put(current.state, current.g, current.move);
+            closed.add(current.state);
+            stats.sample(open.size(), settled.size());
+            int numChildren = packed.expand(current.state, current.blank, childStates, childBlanks);
+            packed.unpack(current.state, board);
+            stats.generated += numChildren;
+            for (int i = 0; i < numChildren; i++) {
+                long state = childStates[i];
+                int move = packed.move(current.blank, childBlanks[i]);
+                if (move == 3 - current.move) {
+                    stats.duplicates++;
+                    continue;
+                }
+                int g = current.g + 1;
+                NumberPuzzle.Node queued = open.get(state);
+                if (queued != null) {
+                    stats.duplicates++;
+                    if (g < queued.g) {
+                        queued.move = (byte) move;
+                        open.decreaseKey(queued, g);
+                        offerGoal(state, g);
+                    }
+                    continue;
+                }
+                int entry = settled.get(state);
+                if (entry != ClosedList.ABSENT) {
+                    stats.duplicates++;
+                    if (g >= ClosedList.g(entry))
+                        continue;
+                }
+                int h = heuristic.update(current.h, board, current.blank, childBlanks[i]);
+                // Cannot lead to a shorter solution than the incumbent
+                if (g + h >= goalG)
+                    continue;
+                NumberPuzzle.Node child = new NumberPuzzle.Node(state, childBlanks[i], move, g, h);
+                if (weight > UNIT && closed.contains(state)) {
+                    settled.put(state, g, move);
+                    inconsistent.add(child);
+                } else {
+                    settled.remove(state);
+                    open.add(child);
+                }
+                offerGoal(state, g);
+            }
+        }
+    }
+
+    private void offerGoal(long state, int g) {
+        if (state == packed.goal && g < goalG)
+            goalG = g;
+    }
+
+    /** Hands the incumbent and its bound to the listener if either improved */
+    private void publish() {
+        if (goalG == Integer.MAX_VALUE)
+            return;
+        int lowest = open.minF();
+        for (NumberPuzzle.Node n : inconsistent) {
+            lowest = Math.min(lowest, n.f);
+        }
+        double bound = Math.min((double) weight / UNIT, (double) goalG / Math.min(goalG, lowest));
+        boolean shorter = best == null || goalG < best.length;
+        if (!shorter && bound >= bestBound)
+            return;
+        if (shorter)
+            best = packed.backtrack(packed.goal, packed.goalBlank, start, this::moveOf);
+        bestBound = Math.min(bound, bestBound);
+        stats.bound = bestBound;
+        if (listener != null)
+            listener.improved(new Solution(puzzle, best, stats), bestBound);
+    }
+
+    /** Move that reached a known state */
+    private int moveOf(long state) {
+        NumberPuzzle.Node n = open.get(state);
+        return (n != null) ? n.move : ClosedList.move(settled.get(state));
+    }
+}
@@ -0,0 +1,190 @@
+package com;
+
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.file.Paths;
+import java.util.Scanner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Solves a stream of boards on a fixed pool of worker threads.
+ *
+ * Boards are read one at a time (blank lines between them are optional, the
+ * width comes from each board's first row), so the input is never held in
+ * memory. At most `threads * WINDOW` boards are in flight; the reader blocks
+ * once the window is full. A writer thread prints one line per board in input
+ * order as soon as every earlier board is done:
+ *
+ *     index  status  length  millis  moves
+ *
+ * where status is solved, unsolvable, time-limit, node-limit or error, and moves
+ * spells the blank's path as U/L/R/D. With `json` set, each line is instead one
+ * JSON object with the index, the moves and the board's SearchStats. Each board
+ * gets its own SearchBudget, and pattern databases are loaded once and shared
+ * read-only by every worker.
+ *
+ * A board that cannot be parsed, or whose solve throws anything at all (an
+ * OutOfMemoryError or StackOverflowError included), gets an error line with a
+ * message in place of its result, and the batch carries on with the next board.
+ */
+final class BatchSolver {
+    private static final int WINDOW = 4;
+    private static final int CACHE_SIZE = 1 << 20;
+
+    private final int threads;
+    private final long timeMillis;
+    private final long maxNodes;
+    private final NumberPuzzle.Search search;
+    private final boolean betterH;
+    private final boolean json;
+
+    BatchSolver(int threads, long timeMillis, long maxNodes, NumberPuzzle.Search search, boolean betterH,
+            boolean json) {
+        this.threads = threads;
+        this.timeMillis = timeMillis;
+        this.maxNodes = maxNodes;
+        this.search = search;
+        this.betterH = betterH;
+        this.json = json;
+    }
+
+    /** Solves every board on `in` and writes the results to `out` */
+    void run(InputStream in, PrintWriter out) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        BlockingQueue<Future<String>> pending = new ArrayBlockingQueue<>(threads * WINDOW);
+        // Completed future with a null line, queued after the last board
+        Future<String> end = CompletableFuture.completedFuture(null);
+
+        Thread writer = new Thread(() -> {
+            try {
+                int index = 0;
+                for (Future<String> result = pending.take(); result != end; result = pending.take(), index++) {
+                    try {
+                        out.println(result.get());
+                    } catch (ExecutionException e) {
+                        out.println(errorLine(index, e.getCause().toString()));
+                    }
+                    // Flush whenever the writer has caught up with the workers
+                    if (pending.isEmpty())
+                        out.flush();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                out.flush();
+            }
+        }, "batch-writer");
+        writer.start();
+
+        try {
+            Scanner scanner = new Scanner(in);
+            for (int index = 0; ; index++) {
+                NumberPuzzle puzzle;
+                try {
+                    puzzle = NumberPuzzle.readPuzzle(scanner);
+                } catch (IllegalArgumentException e) {
+                    // readPuzzle has skipped the rest of the bad board
+                    pending.put(CompletableFuture.completedFuture(errorLine(index, e.getMessage())));
+                    continue;
+                }
+                if (puzzle == null)
+                    break;
+                int i = index;
+                pending.put(pool.submit(() -> solveOne(i, puzzle)));
+            }
+            pending.put(end);
+            writer.join();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Result line for a board that failed with `message` instead of producing stats */
+    private String errorLine(int index, String message) {
+        if (json)
+            return "{\"index\":" + index + ",\"status\":\"error\",\"message\":" + SearchStats.jsonString(message) + "}";
+        // Keeps the message one field on one line
+        return index + " error -1 0 " + message.replaceAll("\\s", "_");
+    }
+
+    private String solveOne(int index, NumberPuzzle puzzle) {
+        long start = System.nanoTime();
+        SearchStats stats = new SearchStats(search.name());
+        Solution solution = null;
+        try {
+            SearchBudget budget = new SearchBudget(timeMillis, maxNodes);
+            stats.enter(SearchStats.Phase.HEURISTIC);
+            solution = puzzle.solution(search, puzzle.heuristic(betterH), budget, stats);
+        } catch (RuntimeException e) {
+            stats.enter(null);
+            stats.status = "error";
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        String moves = (solution == null) ? "-" : solution.moves();
+        if (json)
+            return "{\"index\":" + index + ",\"moves\":\"" + moves + "\"," + stats.jsonFields() + "}";
+        return index + " " + stats.status + " " + stats.length + " " + millis + " " + moves;
+    }
+
+    /**
+     * Usage: BatchSolver [-threads n] [-time ms] [-nodes n] [-search mode] [-heuristic kind]
+     *                    [-pdb dir] [-json] [-cache file] [file]
+     * Reads stdin when no file is given. Limits of 0 mean unlimited. -search takes
+     * a NumberPuzzle.Search name and -heuristic "hamming" or a HeuristicKind name,
+     * either in any case; -pdb sets PATTERN_DB, which takes precedence over
+     * -heuristic on widths it covers. Without them they default to NumberPuzzle's
+     * SEARCH, BETTER, HEURISTIC and PATTERN_DB.
+     * -cache shares a SolutionCache between the workers, starting from the
+     * snapshot in `file` if there is one and saving it back at the end; its
+     * counters go to stderr.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int threads = NumberPuzzle.THREADS;
+        long timeMillis = 0;
+        long maxNodes = 0;
+        boolean json = false;
+        NumberPuzzle.Search search = NumberPuzzle.SEARCH;
+        boolean betterH = NumberPuzzle.BETTER;
+        String cacheFile = null;
+        String file = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-threads": threads = Integer.parseInt(args[++i]); break;
+                case "-time": timeMillis = Long.parseLong(args[++i]); break;
+                case "-nodes": maxNodes = Long.parseLong(args[++i]); break;
+                case "-search": search = NumberPuzzle.Search.valueOf(args[++i].toUpperCase()); break;
+                case "-heuristic":
+                    String kind = args[++i].toUpperCase();
+                    betterH = !kind.equals("HAMMING");
+                    if (betterH)
+                        NumberPuzzle.HEURISTIC = NumberPuzzle.HeuristicKind.valueOf(kind);
+                    break;
+                case "-pdb": NumberPuzzle.PATTERN_DB = args[++i]; break;
+                case "-json": json = true; break;
+                case "-cache": cacheFile = args[++i]; break;
+                default: file = args[i];
+            }
+        }
+        BatchSolver solver = new BatchSolver(threads, timeMillis, maxNodes, search, betterH, json);
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16));
+        if (cacheFile != null)
+            NumberPuzzle.CACHE = SolutionCache.load(Paths.get(cacheFile), CACHE_SIZE, true);
+        try (InputStream in = (file == null) ? System.in : new FileInputStream(file)) {
+            solver.run(in, out);
+        }
+        if (cacheFile != null) {
+            NumberPuzzle.CACHE.save(Paths.get(cacheFile));
+            System.err.println(NumberPuzzle.CACHE.toJson());
+        }
+    }
+}
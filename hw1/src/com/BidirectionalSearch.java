@@ -0,0 +1,178 @@
+package com;
+
+import java.util.Comparator;
+
+/**
+ * Bidirectional front-to-end search (MM, Holte et al. 2016).
+ *
+ * One A*-like search runs forward from the board towards the goal and another
+ * backward from the goal towards the board. Each side orders its frontier by
+ * pr(n) = max(f(n), 2g(n)), so neither side expands a node more than half-way
+ * past the optimal cost C*, and the two searches are guaranteed to meet in the
+ * middle. Every generated state that is also known to the other side gives a
+ * candidate solution U; once U is no larger than the lowest priority on either
+ * frontier, no cheaper meeting point is left and U is optimal.
+ *
+ * Since pr is not f, a state can be closed before its cheapest path is found, so
+ * a cheaper arrival reopens it. The forward side uses the heuristic it is given;
+ * the backward side uses Manhattan distance to the tiles' starting cells.
+ */
+final class BidirectionalSearch {
+    private final NumberPuzzle puzzle;
+    private final PackedBoard packed;
+    private final SearchBudget budget;
+    private final SearchStats stats;
+    private final Side forward, backward;
+
+    private int best = Integer.MAX_VALUE;          // U, the cheapest path found so far
+    private long meetState;                         // where the sides met for U
+    private int meetBlank;
+
+    BidirectionalSearch(NumberPuzzle puzzle, Heuristic heuristic, SearchBudget budget, SearchStats stats) {
+        this.puzzle = puzzle;
+        this.packed = PackedBoard.forWidth(puzzle.width());
+        this.budget = budget;
+        this.stats = stats;
+        int[] start = new int[packed.cells];
+        packed.unpack(puzzle.pack(), start);
+        int[] home = new int[packed.cells];
+        for (int cell = 0; cell < packed.cells; cell++) {
+            home[start[cell]] = cell;
+        }
+        this.forward = new Side(heuristic);
+        this.backward = new Side(puzzle.new ManhattanDistance(home));
+    }
+
+    /** Lowest MM priority first, then lowest g */
+    private static int priority(NumberPuzzle.Node n) {
+        return Math.max(n.f, 2 * n.g);
+    }
+
+    private static final Comparator<NumberPuzzle.Node> ORDER = (n1, n2) -> {
+        int cost = priority(n1) - priority(n2);
+        if (cost == 0)
+            cost = n1.g - n2.g;
+        return cost;
+    };
+
+    /**
+     * Solves from the puzzle's board; the moves to the goal, or null if there is
+     * no solution. Enters the PATH phase of the stats itself once the sides have met.
+     */
+    int[] solve() {
+        if (!puzzle.isSolvable())
+            return null;
+        long startState = puzzle.pack();
+        if (startState == packed.goal)
+            return new int[0];
+        forward.seed(startState, packed.findBlank(startState));
+        backward.seed(packed.goal, packed.goalBlank);
+
+        while (!forward.open.isEmpty() && !backward.open.isEmpty()) {
+            int prForward = priority(forward.open.peek());
+            int prBackward = priority(backward.open.peek());
+            if (best <= Math.min(prForward, prBackward))
+                break;
+            if (prForward <= prBackward)
+                forward.expand(backward);
+            else
+                backward.expand(forward);
+        }
+        stats.enter(SearchStats.Phase.PATH);
+        if (best == Integer.MAX_VALUE)
+            return null;
+        int[] toMeet = packed.backtrack(meetState, meetBlank, startState, forward::moveOf);
+        int[] fromGoal = packed.backtrack(meetState, meetBlank, packed.goal, backward::moveOf);
+        // The backward moves run from the goal to the meeting point: reverse and undo them
+        int[] moves = java.util.Arrays.copyOf(toMeet, toMeet.length + fromGoal.length);
+        for (int i = 0; i < fromGoal.length; i++) {
+            moves[toMeet.length + i] = 3 - fromGoal[fromGoal.length - 1 - i];
+        }
+        return moves;
+    }
+
+/*----------------------- Side -----------------------*/
+
+    /** Open and closed lists of one direction */
+    private final class Side {
+        final Heuristic heuristic;
+        final IndexedHeap open = new IndexedHeap(9999, ORDER);
+        final ClosedList closed = new ClosedList(9999);
+        final long[] childStates = new long[PackedBoard.NUM_MOVES];
+        final int[] childBlanks = new int[PackedBoard.NUM_MOVES];
+        final int[] board = new int[packed.cells];
+
+        Side(Heuristic heuristic) {
+            this.heuristic = heuristic;
+        }
+
+        void seed(long state, int blank) {
+            packed.unpack(state, board);
+            open.add(new NumberPuzzle.Node(state, blank, PackedBoard.NO_MOVE, 0, heuristic.estimate(board)));
+        }
+
+        /** g of a state this side holds, open or closed, or ClosedList.ABSENT */
+        int g(long state) {
+            NumberPuzzle.Node n = open.get(state);
+            if (n != null)
+                return n.g;
+            int entry = closed.get(state);
+            return (entry == ClosedList.ABSENT) ? ClosedList.ABSENT : ClosedList.g(entry);
+        }
+
+        /** Move that reached a state this side holds */
+        int moveOf(long state) {
+            NumberPuzzle.Node n = open.get(state);
+            return (n != null) ? n.move : ClosedList.move(closed.get(state));
+        }
+
+        void expand(Side other) {
+            NumberPuzzle.Node current = open.poll();
+            closed.put(current.state, current.g, current.move);
+            budget.charge(++stats.expanded);
+            stats.sample(forward.open.size() + backward.open.size(),
+                    forward.closed.size() + backward.closed.size());
+            int numChildren = packed.expand(current.state, current.blank, childStates, childBlanks);
+            packed.unpack(current.state, board);
+            stats.generated += numChildren;
+            for (int i = 0; i < numChildren; i++) {
+                long state = childStates[i];
+                int move = packed.move(current.blank, childBlanks[i]);
+                if (move == 3 - current.move) {
+                    stats.duplicates++;
+                    continue;
+                }
+                int g = current.g + 1;
+                NumberPuzzle.Node child = open.get(state);
+                if (child != null) {
+                    stats.duplicates++;
+                    if (child.g <= g)
+                        continue;
+                    child.move = (byte) move;
+                    open.decreaseKey(child, g);
+                } else {
+                    int old = closed.get(state);
+                    if (old != ClosedList.ABSENT) {
+                        stats.duplicates++;
+                        if (ClosedList.g(old) <= g)
+                            continue;
+                    }
+                    int h = heuristic.update(current.h, board, current.blank, childBlanks[i]);
+                    // Cannot lead to anything better than the incumbent
+                    if (g + h >= best)
+                        continue;
+                    // Reopen only now, so every state a path can run through stays findable
+                    if (old != ClosedList.ABSENT)
+                        closed.remove(state);
+                    open.add(new NumberPuzzle.Node(state, childBlanks[i], move, g, h));
+                }
+                int meet = other.g(state);
+                if (meet != ClosedList.ABSENT && g + meet < best) {
+                    best = g + meet;
+                    meetState = state;
+                    meetBlank = childBlanks[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com;
+
+import java.util.Arrays;
+
+/**
+ * A* frontier bucketed by integer f.
+ *
+ * f and h are small bounded integers, so instead of a comparison heap the
+ * frontier is an array of buckets indexed by f, each split by h. Within an f the
+ * lowest h (so the highest g, the same tie break the comparators used) comes out
+ * first, and equal (f, h) nodes come out last-in first-out. A cursor tracks the
+ * lowest non-empty f and each f keeps its own lowest-h cursor, so push, pop and
+ * decrease-key are O(1) amortized. Like IndexedHeap it indexes queued nodes by
+ * packed state; a node's heapIndex is its slot inside its (f, h) bucket.
+ */
+final class BucketQueue {
+    private NumberPuzzle.Node[][][] buckets;    // [f][h][slot]
+    private int[][] sizes;                      // [f][h]
+    private int[] counts;                       // nodes queued per f
+    private int[] minH;                         // lowest h that may be non-empty, per f
+    private int minF;
+    private int size;
+    private final StateMap<NumberPuzzle.Node> index;
+
+    BucketQueue(int capacity) {
+        this.buckets = new NumberPuzzle.Node[128][][];
+        this.sizes = new int[128][];
+        this.counts = new int[128];
+        this.minH = new int[128];
+        this.index = new StateMap<>(capacity);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean contains(long state) {
+        return index.containsKey(state);
+    }
+
+    /** The frontier node for a state, or null if the state is not on the frontier */
+    NumberPuzzle.Node get(long state) {
+        return index.get(state);
+    }
+
+    /** Lowest f on the frontier, or Integer.MAX_VALUE when empty */
+    int minF() {
+        if (size == 0)
+            return Integer.MAX_VALUE;
+        while (counts[minF] == 0) {
+            minF++;
+        }
+        return minF;
+    }
+
+    void add(NumberPuzzle.Node n) {
+        index.put(n.state, n);
+        push(n);
+    }
+
+    NumberPuzzle.Node poll() {
+        if (size == 0)
+            return null;
+        int f = minF();
+        int[] sizesF = sizes[f];
+        int h = minH[f];
+        while (sizesF[h] == 0) {
+            h++;
+        }
+        minH[f] = h;
+        NumberPuzzle.Node n = buckets[f][h][--sizesF[h]];
+        buckets[f][h][sizesF[h]] = null;
+        counts[f]--;
+        size--;
+        index.remove(n.state);
+        n.heapIndex = -1;
+        return n;
+    }
+
+    /** Gives a queued node the lower cost g and moves it to its new bucket */
+    void decreaseKey(NumberPuzzle.Node n, int g) {
+        // Swap the last node of the old bucket into the hole
+        NumberPuzzle.Node[] bucket = buckets[n.f][n.h];
+        int last = --sizes[n.f][n.h];
+        bucket[n.heapIndex] = bucket[last];
+        bucket[n.heapIndex].heapIndex = n.heapIndex;
+        bucket[last] = null;
+        counts[n.f]--;
+        size--;
+        n.g = g;
+        n.f = g + n.h;
+        push(n);
+    }
+
+    private void push(NumberPuzzle.Node n) {
+        int f = n.f, h = n.h;
+        if (f >= buckets.length) {
+            int length = Math.max(f + 1, buckets.length * 2);
+            buckets = Arrays.copyOf(buckets, length);
+            sizes = Arrays.copyOf(sizes, length);
+            counts = Arrays.copyOf(counts, length);
+            minH = Arrays.copyOf(minH, length);
+        }
+        if (buckets[f] == null) {
+            // h <= f, so f + 1 sub-buckets always suffice
+            buckets[f] = new NumberPuzzle.Node[f + 1][];
+            sizes[f] = new int[f + 1];
+            minH[f] = f;
+        }
+        NumberPuzzle.Node[] bucket = buckets[f][h];
+        if (bucket == null) {
+            bucket = buckets[f][h] = new NumberPuzzle.Node[16];
+        } else if (sizes[f][h] == bucket.length) {
+            bucket = buckets[f][h] = Arrays.copyOf(bucket, bucket.length * 2);
+        }
+        n.heapIndex = sizes[f][h];
+        bucket[sizes[f][h]++] = n;
+        counts[f]++;
+        if (h < minH[f])
+            minH[f] = h;
+        if (f < minF || size == 0)
+            minF = f;
+        size++;
+    }
+}
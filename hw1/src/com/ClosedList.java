@@ -0,0 +1,112 @@
+package com;
+
+/**
+ * Closed list of packed states (see PackedBoard), each with its g and the move
+ * code that reached it, in two primitive arrays.
+ *
+ * A closed state no longer needs its Node: g is enough for duplicate checks and
+ * the move is enough to find its parent, since undoing the move from the state
+ * gives the parent's state. So an entry is one long key and one int (g above
+ * the 2-bit move code) instead of a reference to a 40-byte node, and paths are
+ * rebuilt by walking moves back from the goal. Probing and removal work as in
+ * StateMap, whose mix function this shares.
+ */
+final class ClosedList {
+    private static final long EMPTY = 0L;
+    /** get() result for a state that is not in the list */
+    static final int ABSENT = -1;
+
+    private long[] keys;
+    private int[] entries;
+    private int size;
+    private int mask;
+
+    ClosedList(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(expected, 8) * 2 - 1) << 1;
+        keys = new long[capacity];
+        entries = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /** The root's NO_MOVE is stored as some code too; a backtrack never reads it */
+    static int entry(int g, int move) {
+        return (g << 2) | (move & 3);
+    }
+
+    static int g(int entry) {
+        return entry >>> 2;
+    }
+
+    static int move(int entry) {
+        return entry & 3;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean containsKey(long state) {
+        return keys[slot(state)] != EMPTY;
+    }
+
+    /** The state's entry, or ABSENT */
+    int get(long state) {
+        int i = slot(state);
+        return (keys[i] == EMPTY) ? ABSENT : entries[i];
+    }
+
+    void put(long state, int g, int move) {
+        int i = slot(state);
+        entries[i] = entry(g, move);
+        if (keys[i] == EMPTY) {
+            keys[i] = state;
+            if (++size * 2 > keys.length)
+                grow();
+        }
+    }
+
+    void remove(long state) {
+        int i = slot(state);
+        if (keys[i] == EMPTY)
+            return;
+        // Shift later entries of the probe run back into the hole
+        int hole = i;
+        int j = (i + 1) & mask;
+        while (keys[j] != EMPTY) {
+            int home = (int) StateMap.mix(keys[j]) & mask;
+            // Move j into the hole unless its home lies cyclically in (hole, j]
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                entries[hole] = entries[j];
+                hole = j;
+            }
+            j = (j + 1) & mask;
+        }
+        keys[hole] = EMPTY;
+        size--;
+    }
+
+    /** Slot holding the state, or the empty slot where it would go */
+    private int slot(long state) {
+        int i = (int) StateMap.mix(state) & mask;
+        while (keys[i] != EMPTY && keys[i] != state) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldEntries = entries;
+        keys = new long[oldKeys.length * 2];
+        entries = new int[oldKeys.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int j = slot(oldKeys[i]);
+                keys[j] = oldKeys[i];
+                entries[j] = oldEntries[i];
+            }
+        }
+    }
+}
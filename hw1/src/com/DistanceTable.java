@@ -0,0 +1,185 @@
+package com;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Optimal distance to the goal of every board of a small width, indexed by
+ * PermutationRank, four bits per board.
+ *
+ * The 8-puzzle needs up to 31 moves, more than four bits hold, so an entry is the
+ * distance mod 15 and UNREACHABLE marks the other half of the permutations. That
+ * is still enough to solve without searching: the neighbours of a board are all
+ * one move nearer or one further, so the neighbour whose entry is one less mod 15
+ * is one move nearer, and following such neighbours from any board walks an
+ * optimal path to the goal. A 3x3 table is 9! / 2 = 181,440 bytes.
+ *
+ * Tables are built once by a breadth-first search from the goal, written to disk
+ * and memory-mapped read-only, as PatternDatabase does. Lookups never write, so
+ * one instance can be shared by any number of threads.
+ */
+final class DistanceTable {
+    private static final int MAGIC = 0x44535431;    // "DST1"
+    private static final int MODULUS = 15;
+    private static final int UNREACHABLE = 0xF;
+    /** Widest board whose table fits in memory; 4x4 would need 16! / 2 bytes */
+    static final int MAX_WIDTH = 3;
+
+    private final PackedBoard packed;
+    private final ByteBuffer table;
+
+    private DistanceTable(int width, ByteBuffer table) {
+        this.packed = PackedBoard.forWidth(width);
+        this.table = table;
+    }
+
+    static boolean fits(int width) {
+        return width >= 2 && width <= MAX_WIDTH;
+    }
+
+    int width() {
+        return packed.width;
+    }
+
+    private int entry(long rank) {
+        return nibble(table.get((int) (rank >>> 1)), rank);
+    }
+
+    /** The half of a byte that holds `rank` */
+    private static int nibble(byte b, long rank) {
+        return (b >>> (4 * (int) (rank & 1))) & 0xF;
+    }
+
+    private static void set(byte[] nibbles, long rank, int value) {
+        int i = (int) (rank >>> 1);
+        int shift = 4 * (int) (rank & 1);
+        nibbles[i] = (byte) ((nibbles[i] & ~(0xF << shift)) | (value << shift));
+    }
+
+    /** Optimal moves from a state to the goal, or null if it cannot be reached */
+    int[] solve(long state) {
+        int value = entry(PermutationRank.rank(state, packed.cells));
+        if (value == UNREACHABLE)
+            return null;
+        int blank = packed.findBlank(state);
+        int[] moves = new int[32];
+        int n = 0;
+        while (state != packed.goal) {
+            int nearer = (value + MODULUS - 1) % MODULUS;
+            int m = 0;
+            while (true) {
+                int to = packed.target[blank*PackedBoard.NUM_MOVES + m];
+                if (to >= 0) {
+                    long next = PackedBoard.slide(state, blank, to);
+                    if (entry(PermutationRank.rank(next, packed.cells)) == nearer) {
+                        state = next;
+                        blank = to;
+                        break;
+                    }
+                }
+                if (++m == PackedBoard.NUM_MOVES)
+                    throw new IllegalStateException("Distance table has no way down from " + Long.toHexString(state));
+            }
+            if (n == moves.length)
+                moves = Arrays.copyOf(moves, n * 2);
+            moves[n++] = m;
+            value = nearer;
+        }
+        return Arrays.copyOf(moves, n);
+    }
+
+/*--------------------- Building ---------------------*/
+
+    /** Breadth-first search from the goal over every reachable board; the table doubles as the visited set */
+    static DistanceTable build(int width) {
+        if (!fits(width))
+            throw new IllegalArgumentException("No distance table for a " + width + "x" + width + " board");
+        PackedBoard packed = PackedBoard.forWidth(width);
+        int cells = packed.cells;
+        long count = PermutationRank.count(cells);
+        byte[] nibbles = new byte[(int) ((count + 1) / 2)];
+        Arrays.fill(nibbles, (byte) 0xFF);
+
+        // Only the reachable half is ever queued
+        int[] queue = new int[(int) (count / 2)];
+        int head = 0, tail = 0;
+        long goalRank = PermutationRank.rank(packed.goal, cells);
+        set(nibbles, goalRank, 0);
+        queue[tail++] = (int) goalRank;
+        long[] childStates = new long[PackedBoard.NUM_MOVES];
+        int[] childBlanks = new int[PackedBoard.NUM_MOVES];
+        int depth = 0;
+        while (head < tail) {
+            int layerEnd = tail;
+            int value = (depth + 1) % MODULUS;
+            while (head < layerEnd) {
+                long state = PermutationRank.unrank(queue[head++], cells);
+                int numChildren = packed.expand(state, packed.findBlank(state), childStates, childBlanks);
+                for (int i = 0; i < numChildren; i++) {
+                    long rank = PermutationRank.rank(childStates[i], cells);
+                    if (nibble(nibbles[(int) (rank >>> 1)], rank) == UNREACHABLE) {
+                        set(nibbles, rank, value);
+                        queue[tail++] = (int) rank;
+                    }
+                }
+            }
+            depth++;
+        }
+        return new DistanceTable(width, ByteBuffer.wrap(nibbles));
+    }
+
+/*---------------------- Files -----------------------*/
+
+    /** Header (magic, width) followed by the nibbles, two boards per byte */
+    void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(packed.width);
+            ByteBuffer values = table.duplicate();
+            values.clear();
+            byte[] chunk = new byte[1 << 16];
+            while (values.hasRemaining()) {
+                int n = Math.min(chunk.length, values.remaining());
+                values.get(chunk, 0, n);
+                out.write(chunk, 0, n);
+            }
+        }
+    }
+
+    /** Maps a table written by write() read-only into memory */
+    static DistanceTable load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, 8);
+            if (header.getInt(0) != MAGIC)
+                throw new IOException("Not a distance table: " + file);
+            int width = header.getInt(4);
+            if (!fits(width))
+                throw new IOException("Bad width " + width + " in distance table: " + file);
+            long bytes = (PermutationRank.count(width * width) + 1) / 2;
+            if (channel.size() != 8 + bytes)
+                throw new IOException("Truncated distance table: " + file);
+            // The mapping stays valid after the channel is closed
+            return new DistanceTable(width, channel.map(FileChannel.MapMode.READ_ONLY, 8, bytes));
+        }
+    }
+
+    /** Loads the table for a width from a directory, building and writing it first if it is not there */
+    static DistanceTable loadOrBuild(Path dir, int width) throws IOException {
+        Files.createDirectories(dir);
+        Path file = dir.resolve("distance-" + width + ".bin");
+        if (!Files.exists(file)) {
+            Path tmp = dir.resolve("distance-" + width + ".tmp");
+            build(width).write(tmp);
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return load(file);
+    }
+}
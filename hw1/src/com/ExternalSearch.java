@@ -0,0 +1,344 @@
+package com;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Breadth-first iterative-deepening A* (BFIDA*) with its layers on disk and
+ * delayed duplicate detection (Korf 2004).
+ *
+ * Each iteration is a breadth-first search that drops children with f > bound;
+ * the next bound is the smallest f that was dropped, as in IDA*. Layer d + 1 is
+ * built from layer d without any in-memory index: children are collected in a
+ * buffer of `runStates` packed states, and every full buffer is sorted, cleared
+ * of duplicates and written out as a run file. Once layer d is expanded, the
+ * runs are merged into the sorted layer d + 1 file, dropping duplicates between
+ * runs and every state already in layer d - 1. Every move takes the blank to a
+ * cell of the other colour on a chessboard, so a child can never be in its own
+ * layer or in layer d, and layer d - 1 is the only one it needs checking against.
+ *
+ * Memory is the run buffer plus a read buffer per run; everything else is
+ * sequential file I/O, so the size of the instance is bounded by local disk.
+ * No moves are stored: the path is rebuilt by looking each state's neighbours
+ * up in the layer before it, by binary search in the sorted file. Layers of the
+ * current iteration are kept until the solve ends, so peakClosed counts every
+ * state on disk; retainedBytes is the run buffer.
+ */
+final class ExternalSearch {
+    /** Default run buffer, 32 MB of states */
+    static final int RUN_STATES = 1 << 22;
+    private static final int FOUND = -1;
+
+    private final NumberPuzzle puzzle;
+    private final PackedBoard packed;
+    private final Heuristic heuristic;
+    private final SearchBudget budget;
+    private final SearchStats stats;
+    private final Path parent;
+    private final long[] run;
+
+    private Path dir;
+    private final List<Path> layers = new ArrayList<>();
+    private final long[] childStates = new long[PackedBoard.NUM_MOVES];
+    private final int[] childBlanks = new int[PackedBoard.NUM_MOVES];
+
+    ExternalSearch(NumberPuzzle puzzle, Heuristic heuristic, SearchBudget budget, SearchStats stats,
+            Path dir, int runStates) {
+        this.puzzle = puzzle;
+        this.packed = PackedBoard.forWidth(puzzle.width());
+        this.heuristic = heuristic;
+        this.budget = budget;
+        this.stats = stats;
+        this.parent = dir;
+        this.run = new long[runStates];
+    }
+
+    /**
+     * Finds an optimal sequence of blank moves to the goal, or null if there is
+     * none. Works in a fresh directory under the one it was given and deletes it
+     * before returning, also when the budget runs out.
+     */
+    int[] solve() {
+        if (!puzzle.isSolvable())
+            return null;
+        long start = puzzle.pack();
+        int[] board = new int[packed.cells];
+        packed.unpack(start, board);
+        int bound = heuristic.estimate(board);
+        stats.retainedBytes = 8L * run.length;
+        try {
+            Files.createDirectories(parent);
+            dir = Files.createTempDirectory(parent, "frontier");
+            while (true) {
+                int next = iterate(start, bound, board);
+                if (next == FOUND) {
+                    stats.enter(SearchStats.Phase.PATH);
+                    return backtrack();
+                }
+                if (next == Integer.MAX_VALUE)
+                    return null;
+                bound = next;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deleteAll();
+        }
+    }
+
+    /**
+     * One breadth-first pass up to `bound`. Returns FOUND with the goal's layer
+     * last in `layers`, or the smallest f beyond the bound.
+     */
+    private int iterate(long start, int bound, int[] board) throws IOException {
+        deleteLayers();
+        layers.add(writeRun(new long[] {start}, 1, "layer-0"));
+        int next = Integer.MAX_VALUE;
+        long onDisk = 1;
+        for (int d = 0; ; d++) {
+            List<Path> runs = new ArrayList<>();
+            int buffered = 0;
+            try (StateReader layer = new StateReader(layers.get(d))) {
+                while (layer.hasNext()) {
+                    long state = layer.next();
+                    if (state == packed.goal)
+                        return FOUND;
+                    budget.charge(++stats.expanded);
+                    int blank = packed.findBlank(state);
+                    int numChildren = packed.expand(state, blank, childStates, childBlanks);
+                    stats.generated += numChildren;
+                    packed.unpack(state, board);
+                    int h = heuristic.estimate(board);
+                    for (int i = 0; i < numChildren; i++) {
+                        int f = d + 1 + heuristic.update(h, board, blank, childBlanks[i]);
+                        if (f > bound) {
+                            next = Math.min(next, f);
+                            continue;
+                        }
+                        if (buffered == run.length) {
+                            runs.add(sortedRun(buffered, "run-" + runs.size()));
+                            buffered = 0;
+                        }
+                        run[buffered++] = childStates[i];
+                    }
+                }
+            }
+            if (buffered > 0)
+                runs.add(sortedRun(buffered, "run-" + runs.size()));
+            if (runs.isEmpty())
+                return next;
+            Path merged = dir.resolve("layer-" + (d + 1));
+            long size = merge(runs, (d > 0) ? layers.get(d - 1) : null, merged);
+            for (Path r : runs) {
+                Files.delete(r);
+            }
+            if (size == 0) {
+                Files.delete(merged);
+                return next;
+            }
+            layers.add(merged);
+            onDisk += size;
+            stats.peakOpen = Math.max(stats.peakOpen, size);
+            stats.peakClosed = Math.max(stats.peakClosed, onDisk);
+        }
+    }
+
+    /** Sorts the first `count` buffered states, drops repeats and writes them out */
+    private Path sortedRun(int count, String name) throws IOException {
+        Arrays.sort(run, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || run[i] != run[unique - 1])
+                run[unique++] = run[i];
+        }
+        stats.duplicates += count - unique;
+        return writeRun(run, unique, name);
+    }
+
+    private Path writeRun(long[] states, int count, String name) throws IOException {
+        Path file = dir.resolve(name);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            for (int i = 0; i < count; i++) {
+                out.writeLong(states[i]);
+            }
+        }
+        return file;
+    }
+
+    /**
+     * k-way merge of sorted runs into `out`, keeping one copy of each state and
+     * none that is in the sorted file `exclude`. Returns how many were written.
+     */
+    private long merge(List<Path> runs, Path exclude, Path out) throws IOException {
+        PriorityQueue<StateReader> heads = new PriorityQueue<>((a, b) -> Long.compare(a.head, b.head));
+        StateReader excluded = null;
+        long written = 0;
+        try (DataOutputStream writer = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(out), 1 << 16))) {
+            for (Path r : runs) {
+                StateReader reader = new StateReader(r);
+                if (reader.advance())
+                    heads.add(reader);
+                else
+                    reader.close();
+            }
+            if (exclude != null) {
+                excluded = new StateReader(exclude);
+                excluded.advance();
+            }
+            long last = 0;
+            boolean any = false;
+            while (!heads.isEmpty()) {
+                StateReader reader = heads.poll();
+                long state = reader.head;
+                if (reader.advance())
+                    heads.add(reader);
+                else
+                    reader.close();
+                if (any && state == last) {
+                    stats.duplicates++;
+                    continue;
+                }
+                any = true;
+                last = state;
+                while (excluded != null && !excluded.done && excluded.head < state) {
+                    excluded.advance();
+                }
+                if (excluded != null && !excluded.done && excluded.head == state) {
+                    stats.duplicates++;
+                    continue;
+                }
+                writer.writeLong(state);
+                written++;
+            }
+        } finally {
+            for (StateReader reader : heads) {
+                reader.close();
+            }
+            if (excluded != null)
+                excluded.close();
+        }
+        return written;
+    }
+
+    /**
+     * Moves from the start to the goal: from the goal's layer down, each state's
+     * parent is whichever neighbour the layer before it holds.
+     */
+    private int[] backtrack() throws IOException {
+        int depth = layers.size() - 1;
+        int[] moves = new int[depth];
+        long state = packed.goal;
+        int blank = packed.goalBlank;
+        for (int d = depth - 1; d >= 0; d--) {
+            try (FileChannel layer = FileChannel.open(layers.get(d), StandardOpenOption.READ)) {
+                int numParents = packed.expand(state, blank, childStates, childBlanks);
+                int i = 0;
+                while (!contains(layer, childStates[i])) {
+                    i++;
+                    if (i == numParents)
+                        throw new IllegalStateException("No parent in layer " + d);
+                }
+                // The blank moved from the parent's blank cell to this state's
+                moves[d] = packed.move(childBlanks[i], blank);
+                state = childStates[i];
+                blank = childBlanks[i];
+            }
+        }
+        return moves;
+    }
+
+    /** Binary search of a sorted state file */
+    private static boolean contains(FileChannel layer, long state) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        long lo = 0, hi = layer.size() / 8 - 1;
+        while (lo <= hi) {
+            long mid = (lo + hi) >>> 1;
+            buffer.clear();
+            while (buffer.hasRemaining()) {
+                if (layer.read(buffer, mid * 8 + buffer.position()) < 0)
+                    throw new EOFException();
+            }
+            long found = buffer.getLong(0);
+            if (found < state)
+                lo = mid + 1;
+            else if (found > state)
+                hi = mid - 1;
+            else
+                return true;
+        }
+        return false;
+    }
+
+    private void deleteLayers() throws IOException {
+        for (Path layer : layers) {
+            Files.deleteIfExists(layer);
+        }
+        layers.clear();
+    }
+
+    /** Best effort, so an I/O error here never hides the one that ended the solve */
+    private void deleteAll() {
+        if (dir == null)
+            return;
+        try (java.util.stream.Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(dir);
+        } catch (IOException ignored) {
+        }
+    }
+
+/*------------------- StateReader --------------------*/
+
+    /** Sequential reader of a state file, with the current state kept as `head` */
+    private static final class StateReader implements AutoCloseable {
+        private final DataInputStream in;
+        private long remaining;
+        long head;
+        boolean done;
+
+        StateReader(Path file) throws IOException {
+            this.remaining = Files.size(file) / 8;
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+        }
+
+        boolean hasNext() {
+            return remaining > 0;
+        }
+
+        long next() throws IOException {
+            remaining--;
+            return in.readLong();
+        }
+
+        /** Moves head to the next state; false, and done, at the end */
+        boolean advance() throws IOException {
+            if (remaining == 0) {
+                done = true;
+                return false;
+            }
+            head = next();
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
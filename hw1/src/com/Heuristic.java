@@ -0,0 +1,20 @@
+package com;
+
+/**
+ * Admissible integer estimate of the moves left to the goal.
+ *
+ * Boards are flat and row-major with BLANK for the blank. Searches call estimate
+ * once for the start board and then update for every child, so implementations
+ * should make update cheaper than a full evaluation. An instance may keep
+ * scratch space and is only used by one thread at a time.
+ */
+interface Heuristic {
+    /** Full evaluation, only needed for the start node */
+    int estimate(int[] board);
+
+    /**
+     * h of the child reached by sliding the tile at `to` into the parent's blank.
+     * `board` is the parent; it may be modified during the call but is restored.
+     */
+    int update(int parentH, int[] board, int blank, int to);
+}
@@ -0,0 +1,142 @@
+package com;
+
+import static com.PackedBoard.NO_MOVE;
+import static com.PackedBoard.NUM_MOVES;
+
+/**
+ * Iterative-deepening A* over a single mutable board.
+ *
+ * Each iteration is a depth-first search that cuts off at f > bound; the next
+ * bound is the smallest f that was cut off. Moves are made and unmade in place
+ * on one int[] board, and the only other state is the move stack, so memory is
+ * O(solution depth) and any width works, not just boards that fit in a long.
+ * Move codes are the same as PackedBoard's (UP, LEFT, RIGHT, DOWN).
+ */
+final class IDAStar {
+    private static final int FOUND = -1;
+
+    private final int cells;
+    private final Heuristic heuristic;
+    private final SearchBudget budget;
+    private final SearchStats stats;
+    private final int[] target;     // [cell*NUM_MOVES + move], -1 when off the board
+
+    // Search state, all updated in place
+    private int[] board;
+    private int blank;
+    private int h;
+    private int[] path;
+    private int depth;
+    private int deepest;
+
+    IDAStar(int width, Heuristic heuristic) {
+        this(width, heuristic, SearchBudget.unlimited(),
+                new SearchStats(NumberPuzzle.Search.IDA_STAR.name(), heuristic.getClass().getSimpleName()));
+    }
+
+    IDAStar(int width, Heuristic heuristic, SearchBudget budget, SearchStats stats) {
+        this.cells = width * width;
+        this.heuristic = heuristic;
+        this.budget = budget;
+        this.stats = stats;
+        this.target = PackedBoard.targets(width);
+    }
+
+    /** Counters of the last call to solve; every iteration's nodes are counted */
+    SearchStats stats() {
+        return stats;
+    }
+
+    /**
+     * Finds an optimal sequence of blank moves from the given board (row-major,
+     * BLANK for the blank) to the goal. The board is not modified.
+     * Returns null if the goal cannot be reached, and throws SearchBudget.Exceeded
+     * if the budget runs out first.
+     */
+    int[] solve(int[] tiles) {
+        board = tiles.clone();
+        h = heuristic.estimate(board);
+        for (int cell = 0; cell < cells; cell++) {
+            if (board[cell] == NumberPuzzle.BLANK)
+                blank = cell;
+        }
+        path = new int[64];
+        deepest = 0;
+
+        try {
+            int bound = h;
+            while (true) {
+                int t = search(0, bound, NO_MOVE);
+                if (t == FOUND)
+                    return java.util.Arrays.copyOf(path, depth);
+                if (t == Integer.MAX_VALUE)
+                    return null;
+                bound = t;
+            }
+        } finally {
+            // The only nodes held are the ones on the current path
+            stats.peakOpen = deepest;
+            stats.retainedBytes = (long) deepest * SearchStats.FRAME_BYTES;
+        }
+    }
+
+    private int search(int g, int bound, int prevMove) {
+        int f = g + h;
+        if (f > bound)
+            return f;
+        if (h == 0 && isGoal()) {
+            depth = g;
+            return FOUND;
+        }
+        if (g == path.length)
+            path = java.util.Arrays.copyOf(path, g * 2);
+        if (g >= deepest)
+            deepest = g + 1;
+        budget.charge(++stats.expanded);
+
+        int min = Integer.MAX_VALUE;
+        for (int m = 0; m < NUM_MOVES; m++) {
+            int to = target[blank*NUM_MOVES + m];
+            if (to < 0)
+                continue;
+            stats.generated++;
+            // Never undo the move that got us here
+            if (m == 3 - prevMove) {
+                stats.duplicates++;
+                continue;
+            }
+
+            // Make: slide the tile at `to` into the blank
+            int tile = board[to];
+            int from = blank;
+            int parentH = h;
+            h = heuristic.update(h, board, from, to);
+            board[from] = tile;
+            board[to] = NumberPuzzle.BLANK;
+            blank = to;
+            path[g] = m;
+
+            int t = search(g + 1, bound, m);
+
+            // Unmake
+            h = parentH;
+            blank = from;
+            board[to] = tile;
+            board[from] = NumberPuzzle.BLANK;
+
+            if (t == FOUND)
+                return FOUND;
+            if (t < min)
+                min = t;
+        }
+        return min;
+    }
+
+    private boolean isGoal() {
+        for (int cell = 0; cell < cells - 1; cell++) {
+            if (board[cell] != cell + 1)
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,124 @@
+package com;
+
+import java.util.Comparator;
+
+/**
+ * Binary min-heap of search nodes that also indexes them by packed state.
+ *
+ * Each node remembers its slot in the heap array, so after a cheaper path lowers
+ * a node's f it can be sifted up in place (decrease-key) instead of being pushed
+ * a second time. Membership and lookup go through a StateMap and are O(1).
+ */
+final class IndexedHeap {
+    private NumberPuzzle.Node[] heap;
+    private int size;
+    private final StateMap<NumberPuzzle.Node> index;
+    private final Comparator<NumberPuzzle.Node> order;
+
+    IndexedHeap(int capacity, Comparator<NumberPuzzle.Node> order) {
+        this.heap = new NumberPuzzle.Node[Math.max(capacity, 16)];
+        this.index = new StateMap<>(capacity);
+        this.order = order;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean contains(long state) {
+        return index.containsKey(state);
+    }
+
+    /** The frontier node for a state, or null if the state is not on the frontier */
+    NumberPuzzle.Node get(long state) {
+        return index.get(state);
+    }
+
+    NumberPuzzle.Node peek() {
+        return (size == 0) ? null : heap[0];
+    }
+
+    void add(NumberPuzzle.Node n) {
+        if (size == heap.length)
+            heap = java.util.Arrays.copyOf(heap, size * 2);
+        index.put(n.state, n);
+        heap[size] = n;
+        n.heapIndex = size;
+        size++;
+        siftUp(n.heapIndex);
+    }
+
+    NumberPuzzle.Node poll() {
+        if (size == 0)
+            return null;
+        NumberPuzzle.Node top = heap[0];
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            heap[0].heapIndex = 0;
+            siftDown(0);
+        }
+        heap[size] = null;
+        index.remove(top.state);
+        top.heapIndex = -1;
+        return top;
+    }
+
+    /** Gives a queued node the lower cost g and restores heap order */
+    void decreaseKey(NumberPuzzle.Node n, int g) {
+        n.g = g;
+        n.f = g + n.h;
+        siftUp(n.heapIndex);
+    }
+
+    /** Restores heap order after the comparator started ranking nodes differently */
+    void reorder() {
+        for (int i = (size >>> 1) - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    /** Lowest f on the heap, by a scan since the heap may be ordered on something else */
+    int minF() {
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            min = Math.min(min, heap[i].f);
+        }
+        return min;
+    }
+
+    private void siftUp(int i) {
+        NumberPuzzle.Node n = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (order.compare(n, heap[parent]) >= 0)
+                break;
+            heap[i] = heap[parent];
+            heap[i].heapIndex = i;
+            i = parent;
+        }
+        heap[i] = n;
+        n.heapIndex = i;
+    }
+
+    private void siftDown(int i) {
+        NumberPuzzle.Node n = heap[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2*i + 1;
+            if (child + 1 < size && order.compare(heap[child + 1], heap[child]) < 0)
+                child++;
+            if (order.compare(n, heap[child]) <= 0)
+                break;
+            heap[i] = heap[child];
+            heap[i].heapIndex = i;
+            i = child;
+        }
+        heap[i] = n;
+        n.heapIndex = i;
+    }
+}
@@ -8,17 +8,18 @@
  * heuristic correctly calculates, while the Euclidean heuristic would calculate it as 1 move.
  * This will still work (tested with example function below).
  * This will likely be less optimal than the Manhattan heuristic but will still be faster than the
- * Hamming heuristic (see below times).
+ * Hamming heuristic.
  *
- * Times (Worst of 5):
- *
- * Heuristic:   Manhattan,      Hamming,        Euclidean
- * Time :       184.811523 ms,  126.746628 ms,  167.510010 ms
+ * Times: run the JMH suite in bench/ (com.SolverBenchmark) rather than timing main, which
+ * measures a single cold solve.
  */
 package com;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
 import java.util.*;
 
 // Solving the 16-puzzle with A* using two heuristics:
@@ -26,82 +27,151 @@ import java.util.*;
 
 public class NumberPuzzle {
     public static final int PUZZLE_WIDTH = 4;
+    // Supported board widths; boards wider than PackedBoard.MAX_WIDTH are solved with IDA*
+    public static final int MIN_WIDTH = 3;
+    public static final int MAX_WIDTH = 6;
     public static final int BLANK = 0;
-    // BETTER:  false for tiles-displaced heuristic, true for Manhattan distance
+    // BETTER:  false for tiles-displaced heuristic, true for HEURISTIC
     public static boolean BETTER = false;
+    // HEURISTIC:  estimate used when BETTER is set. WALKING_DISTANCE needs a board
+    //             of width <= 4 and uses LINEAR_CONFLICT on wider ones
+    public static HeuristicKind HEURISTIC = HeuristicKind.WALKING_DISTANCE;
+    // PATTERN_DB:  directory holding the 6-6-3 additive pattern databases. When set,
+    //              they replace the BETTER heuristic (missing tables are built there)
+    public static String PATTERN_DB = null;
+    // DISTANCE_TABLE:  directory holding complete distance tables for boards up to 3x3.
+    //                  When set, those boards are solved by table lookups instead of any SEARCH
+    public static String DISTANCE_TABLE = null;
+    // SEARCH:  ASTAR keeps every generated node, IDA_STAR only the current path,
+    //          PARALLEL_ASTAR splits the state space over THREADS workers (HDA*),
+    //          EXTERNAL keeps its breadth-first layers in files under FRONTIER_DIR,
+    //          ANYTIME returns the best weighted-A* solution when the budget runs out (ARA*),
+    //          SMA holds at most SMA_NODES nodes, forgetting the worst leaves (SMA*)
+    public static Search SEARCH = Search.ASTAR;
+    public static int THREADS = Runtime.getRuntime().availableProcessors();
+    public static String FRONTIER_DIR = System.getProperty("java.io.tmpdir");
+    public static int SMA_NODES = 1 << 20;
+    // CACHE:  optional cache of optimal solutions shared by every solve, null for none
+    public static SolutionCache CACHE = null;
+
+    enum Search { ASTAR, IDA_STAR, PARALLEL_ASTAR, BIDIRECTIONAL, EXTERNAL, ANYTIME, SMA }
+    enum HeuristicKind { MANHATTAN, EUCLIDEAN, LINEAR_CONFLICT, WALKING_DISTANCE }
 
     // You can change this representation if you prefer.
     // If you don't, be careful about keeping the tiles and the blank
     // row and column consistent.
+    private final int width;
     private int[][] tiles;  // [row][column]
     private int blank_r, blank_c;   // blank row and column
 
+    // Loaded on first use per width and shared read-only by every solve
+    private static final PatternDatabase[][] patternDatabases = new PatternDatabase[MAX_WIDTH + 1][];
+    private static final DistanceTable[] distanceTables = new DistanceTable[DistanceTable.MAX_WIDTH + 1];
+
     public static void main(String[] args) {
-        float startTime = System.nanoTime();
         NumberPuzzle myPuzzle = readPuzzle();
-        LinkedList<NumberPuzzle> solutionSteps = myPuzzle.solve(BETTER);
+        if (!myPuzzle.isSolvable()) {
+            System.out.println("Unsolvable board");
+            return;
+        }
+        // Only the search is timed, not reading the board or printing the steps
+        long startTime = System.nanoTime();
+        LinkedList<NumberPuzzle> solutionSteps = myPuzzle.solve(SEARCH, BETTER);
+        double duration = (System.nanoTime() - startTime) / 1e6;
         printSteps(solutionSteps);
-        float endTime = System.nanoTime();
-        float duration = (endTime - startTime) / 1000000;
-        String heuristic = (BETTER) ? "Manhattan" : "Tile Place";
+        String heuristic = (PATTERN_DB != null) ? "Pattern DB" : (BETTER) ? HEURISTIC.toString() : "Tile Place";
         System.out.printf("Heuristic: %s\n", heuristic);
         System.out.printf("Time: %f ms\n", duration);
     }
 
     NumberPuzzle() {
-        tiles = new int[PUZZLE_WIDTH][PUZZLE_WIDTH];
+        this(PUZZLE_WIDTH);
+    }
+
+    NumberPuzzle(int width) {
+        if (width < MIN_WIDTH || width > MAX_WIDTH)
+            throw new IllegalArgumentException("Unsupported puzzle width " + width);
+        this.width = width;
+        tiles = new int[width][width];
+    }
+
+    int width() {
+        return width;
     }
 
     static NumberPuzzle readPuzzle() {
         NumberPuzzle newPuzzle = new NumberPuzzle();
         try {
             File file = new File("/home/piraka9011/IdeaProjects/CS4100/hw1/src/com/sixteenMoves.txt");
-            Scanner myScanner = new Scanner(file);
-            int row = 0;
-            while (myScanner.hasNextLine() && row < PUZZLE_WIDTH) {
-                String line = myScanner.nextLine();
-                String[] numStrings = line.split(" ");
-                for (int i = 0; i < PUZZLE_WIDTH; i++) {
+            newPuzzle = readPuzzle(new Scanner(file));
+        }
+        catch (FileNotFoundException e) {
+            System.out.println("No file found");
+        }
+//        NumberPuzzle newPuzzle = readPuzzle(new Scanner(System.in));
+        return newPuzzle;
+    }
+
+    /**
+     * Reads one board, taking the width from the number of entries on its first
+     * row. Blank lines before the board are skipped. Returns null at end of input.
+     * A malformed board throws IllegalArgumentException after skipping the rest
+     * of its rows (stopping early at a blank line), so the next call starts on
+     * the board after it.
+     */
+    static NumberPuzzle readPuzzle(Scanner myScanner) {
+        String line = "";
+        while (line.isEmpty()) {
+            if (!myScanner.hasNextLine())
+                return null;
+            line = myScanner.nextLine().trim();
+        }
+        String[] numStrings = line.split("\\s+");
+        // The first row says how many rows the board has, even when that is not a supported width
+        int rows = numStrings.length;
+        int row = 0;
+        try {
+            NumberPuzzle newPuzzle = new NumberPuzzle(rows);
+            while (true) {
+                if (numStrings.length != newPuzzle.width)
+                    throw new IllegalArgumentException("Row " + row + " does not have " + newPuzzle.width + " entries");
+                for (int i = 0; i < newPuzzle.width; i++) {
                     if (numStrings[i].equals("-")) {
                         newPuzzle.tiles[row][i] = BLANK;
                         newPuzzle.blank_r = row;
                         newPuzzle.blank_c = i;
                     } else {
-                        newPuzzle.tiles[row][i] = new Integer(numStrings[i]);
+                        newPuzzle.tiles[row][i] = Integer.parseInt(numStrings[i]);
                     }
                 }
                 row++;
+                if (row == newPuzzle.width)
+                    return newPuzzle;
+                if (!myScanner.hasNextLine())
+                    throw new IllegalArgumentException("Board ends after " + row + " rows");
+                line = myScanner.nextLine().trim();
+                numStrings = line.split("\\s+");
             }
+        } catch (IllegalArgumentException e) {
+            // A blank row already ended the board
+            if (!line.isEmpty())
+                skipRows(myScanner, rows - row - 1);
+            throw e;
         }
-        catch (FileNotFoundException e) {
-            System.out.println("No file found");
-        }
-
-//        Scanner myScanner = new Scanner(System.in);
-//
-//        int row = 0;
-//        while (myScanner.hasNextLine() && row < PUZZLE_WIDTH) {
-//            String line = myScanner.nextLine();
-//            String[] numStrings = line.split(" ");
-//            for (int i = 0; i < PUZZLE_WIDTH; i++) {
-//                if (numStrings[i].equals("-")) {
-//                    newPuzzle.tiles[row][i] = BLANK;
-//                    newPuzzle.blank_r = row;
-//                    newPuzzle.blank_c = i;
-//                } else {
-//                    newPuzzle.tiles[row][i] = new Integer(numStrings[i]);
-//                }
-//            }
-//            row++;
-//        }
+    }
 
-        return newPuzzle;
+    /** Skips up to `rows` lines, stopping after the first blank one */
+    private static void skipRows(Scanner myScanner, int rows) {
+        for (; rows > 0 && myScanner.hasNextLine(); rows--) {
+            if (myScanner.nextLine().trim().isEmpty())
+                return;
+        }
     }
 
     public String toString() {
         String out = "";
-        for (int i = 0; i < PUZZLE_WIDTH; i++) {
-            for (int j = 0; j < PUZZLE_WIDTH; j++) {
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < width; j++) {
                 if (j > 0) {
                     out += " ";
                 }
@@ -117,32 +187,100 @@ public class NumberPuzzle {
     }
 
     public NumberPuzzle copy() {
-        NumberPuzzle clone = new NumberPuzzle();
+        NumberPuzzle clone = new NumberPuzzle(width);
         clone.blank_r = blank_r;
         clone.blank_c = blank_c;
-        for (int i = 0; i < PUZZLE_WIDTH; i++) {
-            for (int j = 0; j < PUZZLE_WIDTH; j++) {
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < width; j++) {
                 clone.tiles[i][j] = this.tiles[i][j];
             }
         }
         return clone;
     }
 
+    /** Packs the board into one long, see PackedBoard for the layout (width <= 4 only) */
+    long pack() {
+        long state = 0;
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < width; j++) {
+                state |= (long) tiles[i][j] << ((i*width + j) * PackedBoard.BITS);
+            }
+        }
+        return state;
+    }
+
+    /** Materializes a packed state back into a board */
+    static NumberPuzzle unpack(long state, int width) {
+        NumberPuzzle board = new NumberPuzzle(width);
+        for (int cell = 0; cell < width * width; cell++) {
+            int tile = PackedBoard.tile(state, cell);
+            board.tiles[cell / width][cell % width] = tile;
+            if (tile == BLANK) {
+                board.blank_r = cell / width;
+                board.blank_c = cell % width;
+            }
+        }
+        return board;
+    }
+
     public boolean solved() {
         int shouldBe = 1;
-        for (int i = 0; i < PUZZLE_WIDTH; i++) {
-            for (int j = 0; j < PUZZLE_WIDTH; j++) {
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < width; j++) {
                 if (tiles[i][j] != shouldBe) {
                     return false;
                 } else {
                     // Take advantage of BLANK == 0
-                    shouldBe = (shouldBe + 1) % (PUZZLE_WIDTH*PUZZLE_WIDTH);
+                    shouldBe = (shouldBe + 1) % (width*width);
                 }
             }
         }
         return true;
     }
 
+    /**
+     * Whether the goal can be reached at all. A move never changes the parity of
+     * (inversions + blank row distance from the bottom) on even widths, or of the
+     * inversions alone on odd widths, and the goal has both even. O(n^2) in the
+     * number of cells, so it is worth doing before any search.
+     */
+    public boolean isSolvable() {
+        if (!isPermutation())
+            return false;
+        int cells = width * width;
+        int[] flat = flatTiles();
+        int inversions = 0;
+        for (int a = 0; a < cells; a++) {
+            if (flat[a] == BLANK)
+                continue;
+            for (int b = a + 1; b < cells; b++) {
+                if (flat[b] != BLANK && flat[b] < flat[a])
+                    inversions++;
+            }
+        }
+        if (width % 2 == 0)
+            inversions += width - 1 - blank_r;
+        return inversions % 2 == 0;
+    }
+
+    /**
+     * Whether the tiles are 0..cells-1, each exactly once. pack() does not mask
+     * its input, so only such boards have a packed state of their own.
+     */
+    boolean isPermutation() {
+        int cells = width * width;
+        boolean[] seen = new boolean[cells];
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < width; j++) {
+                int tile = tiles[i][j];
+                if (tile < 0 || tile >= cells || seen[tile])
+                    return false;
+                seen[tile] = true;
+            }
+        }
+        return true;
+    }
+
     static void printSteps(LinkedList<NumberPuzzle> steps) {
         for (NumberPuzzle s : steps) {
             System.out.println(s);
@@ -152,221 +290,531 @@ public class NumberPuzzle {
 /**----------------- Implementation -----------------**/
 /*----------------------- Node -----------------------*/
 
-    class Node {
+    static final class Node {
     /**
-     * A Node class that stores the information of the puzzle state
-     * @param state: The current state of the puzzle tiles
+     * A Node class that stores the information of the puzzle state. Nodes only
+     * live on the frontier; closed states go into a ClosedList as g and move.
+     * @param state: The packed puzzle tiles (see PackedBoard)
+     * @param blank: The cell the blank is in
+     * @param move: PackedBoard move code that reached this state, NO_MOVE at the root
      * @param g: Cost to travel to node (usually 1)
-     * @param parent: The parent node, used to back track
+     * @param h: Heuristic estimate, computed once when the node is created
+     * @param f: g + h, the key the open list is ordered on
+     * @param heapIndex: Slot in the open list's heap, -1 once it is off the frontier
      */
-        NumberPuzzle state;
-        int g;
-        Node parent;
-
-        Node(NumberPuzzle state, Node parent, int cost) {
-            this.g = (parent != null) ? parent.g + cost : cost;
+        long state;
+        byte blank;
+        byte move;
+        int g, h, f;
+        int heapIndex = -1;
+
+        Node(long state, int blank, int move, int g, int h) {
+            this.g = g;
+            this.h = h;
+            this.f = g + h;
             this.state = state;
-            this.parent = parent;
+            this.blank = (byte) blank;
+            this.move = (byte) move;
+        }
+    }
+/*----------------------- Node -----------------------*/
+
+    /**
+     * Base for the per-tile heuristics. The estimate is a sum of cost[tile][cell]
+     * terms, and a move relocates exactly one tile, so a child's h is the parent's
+     * h plus the change in that one term. The queue then only compares stored f.
+     * Heuristics that add something to a per-tile sum override estimate and update.
+     */
+    abstract class TileHeuristic implements Heuristic {
+        final int[][] cost = new int[width*width][width*width];  // [tile][cell]
+
+        @Override
+        public int estimate(int[] board) {
+            int h = 0;
+            for (int cell = 0; cell < board.length; cell++) {
+                h += cost[board[cell]][cell];
+            }
+            return h;
         }
 
-        private boolean isSolved() {
-            return state.solved();
+        @Override
+        public int update(int parentH, int[] board, int blank, int to) {
+            int tile = board[to];
+            return parentH - cost[tile][to] + cost[tile][blank];
+        }
+    }
+
+    /** Sum of each tile's grid distance to its home cell, updated by one tile's change per move. */
+    class ManhattanDistance extends TileHeuristic {
+        ManhattanDistance() {
+            this(null);
         }
 
-        /** Gets the (x,y) coordinates of a value*/
-        private int[] getCoordinates(int num) {
-            for (int row = 0; row < PUZZLE_WIDTH; row++) {
-                for (int col = 0; col < PUZZLE_WIDTH; col++) {
-                    if (state.tiles[row][col] == num)
-                        return new int[]{row, col};
+        /** Distances to the cells in home[tile] instead of the goal, for searching backwards */
+        ManhattanDistance(int[] home) {
+            // The blank's own distance is left at 0 so the estimate stays admissible
+            for (int tile = 1; tile < width*width; tile++) {
+                int goalCell = (home == null) ? tile - 1 : home[tile];
+                int goalRow = goalCell / width, goalCol = goalCell % width;
+                for (int cell = 0; cell < width*width; cell++) {
+                    cost[tile][cell] = Math.abs(goalRow - cell / width)
+                            + Math.abs(goalCol - cell % width);
                 }
             }
-            return new int[]{-1, -1};
         }
     }
-/*----------------------- Node -----------------------*/
 
-    /** Checks if row/col are within puzzle bounds */
-    private boolean isOutOfBounds(int i, int j) {
-        return ((i < 0) || (j < 0) || (i >= PUZZLE_WIDTH) || (j >= PUZZLE_WIDTH));
-    }
-
-    /** Returns a list of node neighbors (possible tile moves) */
-    public LinkedList<Node> getNeighbors(Node n) {
-        int bRow = n.state.blank_r;
-        int bCol = n.state.blank_c;
-        int newRow, newCol;
-        Node newNode;
-        NumberPuzzle newState;
-        LinkedList<Node> neighbors = new LinkedList<Node>();
-
-        // Iterate through possible movements
-        for (int i = -1; i < 2; i++) {
-            for (int j = -1; j < 2; j++) {
-                // Avoid same tile and diagonal moves
-                if ((i*j != 0) || (i == j))
-                    continue;
-                // Check bounds
-                newRow = i + bRow;
-                newCol = j + bCol;
-                if (!isOutOfBounds(newRow, newCol)) {
-                    // Create a new neighbor
-                    newState = n.state.copy();
-                    // Move the tile
-                    newState.tiles[bRow][bCol] = n.state.tiles[newRow][newCol];
-                    newState.tiles[newRow][newCol] = BLANK;
-                    // Add to list of neighbors and update blank location.
-                    // We add the new node after updating the tiles since the
-                    // cost is calculated only when the node is generated.
-                    // The cost (g) of going to a new state is 1 (not f!)
-                    newNode = new Node(newState, n, 1);
-                    newNode.state.blank_c = newCol;
-                    newNode.state.blank_r = newRow;
-                    neighbors.add(newNode);
+    /** Number of tiles out of place, updated by one tile's change per move. */
+    class HammingDistance extends TileHeuristic {
+        HammingDistance() {
+            for (int tile = 1; tile < width*width; tile++) {
+                for (int cell = 0; cell < width*width; cell++) {
+                    cost[tile][cell] = (cell == tile - 1) ? 0 : 1;
                 }
             }
         }
-        return neighbors;
     }
 
-    /** Iterates from solution through parents to get a path */
-    private LinkedList<NumberPuzzle> reconstructPath (Node n) {
-        LinkedList<NumberPuzzle> puzzlePath = new LinkedList<NumberPuzzle>();
-        Node currNode = n;
-        // For hacker rank...
-        puzzlePath.addFirst(currNode.state);
-        // Loop till the end
-        while (currNode.parent != null) {
-            puzzlePath.addFirst(currNode.parent.state);
-            currNode = currNode.parent;
+    /** Sum of each tile's straight-line distance home, rounded up, updated by one tile's change per move. */
+    class EuclideanDistance extends TileHeuristic {
+        EuclideanDistance() {
+            // Every tile needs a whole number of moves, so rounding each tile's
+            // distance up keeps it a lower bound and lets h stay an int
+            for (int tile = 1; tile < width*width; tile++) {
+                int goalRow = (tile - 1) / width, goalCol = (tile - 1) % width;
+                for (int cell = 0; cell < width*width; cell++) {
+                    double x = Math.pow(goalRow - cell / width, 2);
+                    double y = Math.pow(goalCol - cell % width, 2);
+                    cost[tile][cell] = (int) Math.ceil(Math.sqrt(x + y));
+                }
+            }
         }
-        return puzzlePath;
     }
 
-    /** Priority Queue comparator implementation for the Manhattan Distance heuristic. */
-    class ManhattanDistance implements Comparator<Node> {
-
-        private int getManhattanDistance(Node n) {
-            int score = 0;
-            int shouldBe = 1;
-            int[] currCoords;
-            int currRow, currCol;
-            for (int goalRow = 0; goalRow < PUZZLE_WIDTH; goalRow++) {
-                for (int goalCol = 0; goalCol < PUZZLE_WIDTH; goalCol++) {
-                    currCoords = n.getCoordinates(shouldBe);
-                    currRow = currCoords[0]; currCol = currCoords[1];
-                    score += Math.abs(goalRow - currRow) + Math.abs(goalCol - currCol);
-                    shouldBe = (shouldBe + 1) % (PUZZLE_WIDTH*PUZZLE_WIDTH);
-                }
+    /**
+     * Manhattan distance plus two moves for every tile that has to leave its goal
+     * row or column to let another tile in that line past. In a line, the tiles
+     * that are already in their goal line and can stay are the longest run in goal
+     * order, so all the others must step out and back. Row conflicts only add
+     * vertical moves and column conflicts only horizontal ones, so both add up.
+     *
+     * A move changes one tile's line in one direction only: a horizontal move
+     * touches two columns and a vertical move two rows, so update recounts just
+     * those two lines before and after the move.
+     */
+    class LinearConflict extends ManhattanDistance {
+        private final int[] line = new int[width];     // goal positions along the line
+        private final int[] run = new int[width];      // longest increasing run ending at i
+
+        @Override
+        public int estimate(int[] board) {
+            int h = super.estimate(board);
+            for (int i = 0; i < width; i++) {
+                h += 2 * (conflicts(board, i, true) + conflicts(board, i, false));
             }
-            return score;
+            return h;
         }
 
         @Override
-        public int compare(Node n1, Node n2) {
-            int cost = (n1.g + getManhattanDistance(n1)) - (n2.g + getManhattanDistance(n2));
-            if (cost == 0)
-                cost = n2.g - n1.g;
-            return cost;
-        }
-    }
-
-    /** Priority Queue comparator implementation for the Hamming Distance heuristic. */
-    class HammingDistance implements Comparator<Node> {
-        public int getHammingDistance(Node n) {
-            int numOutOfPlace = 0;
-            int shouldBe = 1;
-            for (int i = 0; i < PUZZLE_WIDTH; i++) {
-                for (int j = 0; j < PUZZLE_WIDTH; j++) {
-                    if (n.state.tiles[i][j] != shouldBe && n.state.tiles[i][j] != BLANK)
-                        numOutOfPlace++;
-                    // Take advantage of BLANK == 0
-                    shouldBe = (shouldBe + 1) % (PUZZLE_WIDTH*PUZZLE_WIDTH);
+        public int update(int parentH, int[] board, int blank, int to) {
+            int tile = board[to];
+            boolean vertical = (to / width != blank / width);
+            int a = vertical ? to / width : to % width;
+            int b = vertical ? blank / width : blank % width;
+            int before = conflicts(board, a, vertical) + conflicts(board, b, vertical);
+            board[blank] = tile;
+            board[to] = BLANK;
+            int after = conflicts(board, a, vertical) + conflicts(board, b, vertical);
+            board[to] = tile;
+            board[blank] = BLANK;
+            return super.update(parentH, board, blank, to) + 2 * (after - before);
+        }
+
+        /** Tiles that must leave row (or column) i */
+        private int conflicts(int[] board, int i, boolean row) {
+            int n = 0;
+            for (int j = 0; j < width; j++) {
+                int tile = board[row ? i*width + j : j*width + i];
+                if (tile == BLANK)
+                    continue;
+                int goalRow = (tile - 1) / width, goalCol = (tile - 1) % width;
+                if ((row ? goalRow : goalCol) == i)
+                    line[n++] = row ? goalCol : goalRow;
+            }
+            int longest = 0;
+            for (int j = 0; j < n; j++) {
+                run[j] = 1;
+                for (int k = 0; k < j; k++) {
+                    if (line[k] < line[j] && run[k] + 1 > run[j])
+                        run[j] = run[k] + 1;
                 }
+                longest = Math.max(longest, run[j]);
             }
-            return numOutOfPlace;
+            return n - longest;
+        }
+    }
+
+    /**
+     * Walking distance: the row and column distances from WalkingDistanceTable.
+     * A vertical move only changes the row matrix and a horizontal move only the
+     * column matrix, so update looks up one new key.
+     */
+    class WalkingDistance implements Heuristic {
+        private final WalkingDistanceTable table = WalkingDistanceTable.forWidth(width);
+
+        @Override
+        public int estimate(int[] board) {
+            return table.distance(table.key(board, true)) + table.distance(table.key(board, false));
         }
 
         @Override
-        public int compare(Node n1, Node n2) {
-            int cost = (n1.g + getHammingDistance(n1)) - (n2.g + getHammingDistance(n2));
-            if (cost == 0)
-                cost = n2.g - n1.g;
-            return cost;
-        }
-    }
-
-    /** Priority Queue comparator implementation for the Euclidean Distance heuristic. */
-    class EuclideanDistance implements Comparator<Node> {
-
-        private double getEuclideanDistance(Node n) {
-            double score = 0.0;
-            int shouldBe = 1;
-            int[] currCoords;
-            int currRow, currCol;
-            double x, y;
-            for (int goalRow = 0; goalRow < PUZZLE_WIDTH; goalRow++) {
-                for (int goalCol = 0; goalCol < PUZZLE_WIDTH; goalCol++) {
-                    // Get where the solution tile actually is now
-                    currCoords = n.getCoordinates(shouldBe);
-                    currRow = currCoords[0]; currCol = currCoords[1];
-                    // Calc. euclidean distance
-                    x = Math.pow(goalRow - currRow, 2);
-                    y = Math.pow(goalCol - currCol, 2);
-                    score += Math.sqrt(x + y);
-                    shouldBe = (shouldBe + 1) % (PUZZLE_WIDTH*PUZZLE_WIDTH);
+        public int update(int parentH, int[] board, int blank, int to) {
+            int tile = board[to];
+            boolean vertical = (to / width != blank / width);
+            long key = table.key(board, vertical);
+            int goalLine = vertical ? (tile - 1) / width : (tile - 1) % width;
+            long child = table.move(key, goalLine, vertical ? to / width : to % width);
+            return parentH - table.distance(key) + table.distance(child);
+        }
+    }
+
+    /**
+     * Sum of the disjoint pattern databases. A move relocates one tile, which
+     * belongs to at most one pattern, so only that pattern is looked up again.
+     */
+    class PatternHeuristic extends TileHeuristic {
+        private final PatternDatabase[] dbs;
+        private final int[] owner;  // owner[tile] = index into dbs, or -1
+        private final int[] pos;    // scratch for the lookups
+
+        PatternHeuristic(PatternDatabase[] dbs) {
+            this.dbs = dbs;
+            this.owner = new int[width*width];
+            Arrays.fill(owner, -1);
+            int largest = 0;
+            for (int i = 0; i < dbs.length; i++) {
+                for (int tile : dbs[i].tiles()) {
+                    owner[tile] = i;
                 }
+                largest = Math.max(largest, dbs[i].tiles().length);
             }
-            return score;
+            this.pos = new int[largest];
         }
 
         @Override
-        public int compare(Node n1, Node n2) {
-            double cost = (n1.g + getEuclideanDistance(n1)) - (n2.g + getEuclideanDistance(n2));
-            if (cost == 0)
-                cost = n2.g - n1.g;
-            return (int) cost;
+        public int estimate(int[] board) {
+            int h = 0;
+            for (PatternDatabase db : dbs) {
+                h += db.value(board, pos);
+            }
+            return h;
+        }
+
+        @Override
+        public int update(int parentH, int[] board, int blank, int to) {
+            int tile = board[to];
+            if (owner[tile] < 0)
+                return parentH;
+            PatternDatabase db = dbs[owner[tile]];
+            return parentH - db.value(board, pos) + db.valueAfter(board, tile, blank, pos);
+        }
+    }
+
+    /** The tables from PATTERN_DB for a width, built there on first use */
+    static synchronized PatternDatabase[] patternDatabases(int width) {
+        if (patternDatabases[width] == null) {
+            try {
+                patternDatabases[width] = PatternDatabase.loadOrBuild(Paths.get(PATTERN_DB), width,
+                        PatternDatabase.partition(width));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return patternDatabases[width];
+    }
+
+    /** The table from DISTANCE_TABLE for a width, or null if it is not set or the width has none */
+    static synchronized DistanceTable distanceTable(int width) {
+        if (DISTANCE_TABLE == null || !DistanceTable.fits(width))
+            return null;
+        if (distanceTables[width] == null) {
+            try {
+                distanceTables[width] = DistanceTable.loadOrBuild(Paths.get(DISTANCE_TABLE), width);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return distanceTables[width];
+    }
+
+    /**
+     * Heuristic selected by PATTERN_DB, falling back to BETTER's choice. Widths
+     * without a buildable partition fall back to HEURISTIC.
+     */
+    Heuristic heuristic(boolean betterH) {
+        if (PATTERN_DB != null && PatternDatabase.partition(width) != null)
+            return new PatternHeuristic(patternDatabases(width));
+        if (PATTERN_DB == null && !betterH)
+            return new HammingDistance();
+        return heuristic(HEURISTIC);
+    }
+
+    Heuristic heuristic(HeuristicKind kind) {
+        switch (kind) {
+            case MANHATTAN: return new ManhattanDistance();
+            case EUCLIDEAN: return new EuclideanDistance();
+            case LINEAR_CONFLICT: return new LinearConflict();
+            default: return PackedBoard.fits(width) ? new WalkingDistance() : new LinearConflict();
         }
     }
 
     // betterH:  if false, use tiles-out-of-place heuristic
-    //           if true, use total-manhattan-distance heuristic
+    //           if true, use HEURISTIC
     LinkedList<NumberPuzzle> solve(boolean betterH) {
+        return solve(Search.ASTAR, betterH);
+    }
+
+    LinkedList<NumberPuzzle> solve(Search search, boolean betterH) {
+        return solution(search, betterH).path();
+    }
+
+    LinkedList<NumberPuzzle> solveIDA(boolean betterH) {
+        return solve(Search.IDA_STAR, betterH);
+    }
+
+    /** Unlimited single-threaded solve with a given heuristic */
+    LinkedList<NumberPuzzle> solve(Heuristic heuristic) {
+        return solution(Search.ASTAR, heuristic, SearchBudget.unlimited()).path();
+    }
+
+    /** Solves with the given search and reports what it took, including building the heuristic */
+    Solution solution(Search search, boolean betterH) {
+        SearchStats stats = new SearchStats(search.name());
+        stats.enter(SearchStats.Phase.HEURISTIC);
+        if (search == Search.PARALLEL_ASTAR && PackedBoard.fits(width) && isSolvable()
+                && distanceTable(width) == null) {
+            Solution cached = cached(stats);
+            if (cached != null)
+                return cached;
+            return remember(new ParallelAStar(this, () -> heuristic(betterH), THREADS, stats).solve());
+        }
+        return solution(search, heuristic(betterH), SearchBudget.unlimited(), stats);
+    }
+
+    /**
+     * Single-threaded solve that stops with a time-limit or node-limit status once
+     * the budget runs out. PARALLEL_ASTAR runs as plain A* here, and boards that
+     * do not fit the packed encoding always use IDA*, the only mode whose memory
+     * does not grow with the frontier.
+     */
+    Solution solution(Search search, Heuristic heuristic, SearchBudget budget) {
+        return solution(search, heuristic, budget, new SearchStats(search.name()));
+    }
+
+    /** As above, adding to stats that may already have timed building the heuristic */
+    Solution solution(Search search, Heuristic heuristic, SearchBudget budget, SearchStats stats) {
+        return solution(search, heuristic, budget, stats, null);
+    }
+
+    /**
+     * ARA*: hands every improved solution and its proven suboptimality bound to
+     * the listener, and returns the best one once it is proven optimal or the
+     * budget runs out. Only fails with a time-limit or node-limit status if the
+     * budget runs out before the first solution.
+     */
+    Solution anytime(Heuristic heuristic, SearchBudget budget, AnytimeSearch.Listener listener) {
+        return solution(Search.ANYTIME, heuristic, budget, new SearchStats(Search.ANYTIME.name()), listener);
+    }
+
+    private Solution solution(Search search, Heuristic heuristic, SearchBudget budget, SearchStats stats,
+            AnytimeSearch.Listener listener) {
+        if (!PackedBoard.fits(width))
+            search = Search.IDA_STAR;
+        else if (search == Search.PARALLEL_ASTAR)
+            search = Search.ASTAR;
+        stats.search = search.name();
+        stats.heuristic = heuristic.getClass().getSimpleName();
+        // Every search would exhaust the reachable half of the state space, or
+        // never terminate in IDA*'s case, on an unsolvable board. Checked before
+        // the CACHE too, which only takes boards that are permutations
+        if (!isSolvable()) {
+            stats.status = "unsolvable";
+            stats.enter(null);
+            return new Solution(this, null, stats);
+        }
+        Solution cached = cached(stats);
+        if (cached != null)
+            return cached;
+        int[] moves = null;
+        DistanceTable table = distanceTable(width);
+        if (table != null)
+            stats.search = "TABLE";
+        try {
+            stats.enter(SearchStats.Phase.SEARCH);
+            if (table != null)
+                moves = table.solve(pack());
+            else if (search == Search.IDA_STAR)
+                moves = new IDAStar(width, heuristic, budget, stats).solve(flatTiles());
+            else if (search == Search.BIDIRECTIONAL)
+                moves = new BidirectionalSearch(this, heuristic, budget, stats).solve();
+            else if (search == Search.ANYTIME)
+                moves = new AnytimeSearch(this, heuristic, budget, stats, listener).solve();
+            else if (search == Search.EXTERNAL)
+                moves = new ExternalSearch(this, heuristic, budget, stats, Paths.get(FRONTIER_DIR),
+                        ExternalSearch.RUN_STATES).solve();
+            else if (search == Search.SMA)
+                moves = new SMAStar(this, heuristic, budget, stats, SMA_NODES).solve();
+            else
+                moves = astar(heuristic, budget, stats);
+        } catch (SearchBudget.Exceeded e) {
+            stats.status = e.limit + "-limit";
+        }
+        stats.enter(null);
+        if (moves != null) {
+            stats.status = "solved";
+            if (Double.isNaN(stats.bound))
+                stats.bound = 1;
+        }
+        return remember(new Solution(this, moves, stats));
+    }
+
+    /** The CACHE's solution for this board, reported as search CACHE, or null */
+    private Solution cached(SearchStats stats) {
+        if (CACHE == null)
+            return null;
+        int[] moves = CACHE.get(this);
+        if (moves == null)
+            return null;
+        stats.search = "CACHE";
+        stats.status = "solved";
+        stats.bound = 1;
+        stats.enter(null);
+        return new Solution(this, moves, stats);
+    }
+
+    /** Puts a proven optimal solution in the CACHE */
+    private Solution remember(Solution solution) {
+        if (CACHE != null && solution.solved() && solution.stats.bound == 1)
+            CACHE.put(this, solution.moveCodes());
+        return solution;
+    }
+
+    /** The tiles as one row-major array */
+    int[] flatTiles() {
+        int[] flat = new int[width * width];
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < width; j++) {
+                flat[i*width + j] = tiles[i][j];
+            }
+        }
+        return flat;
+    }
+
+    /** PackedBoard move codes as U/L/R/D letters, one per step */
+    static String moveString(int[] moves) {
+        char[] letters = new char[moves.length];
+        for (int i = 0; i < moves.length; i++) {
+            letters[i] = "ULRD".charAt(moves[i]);
+        }
+        return new String(letters);
+    }
+
+    /** Boards visited by applying blank moves (PackedBoard move codes) to this board */
+    LinkedList<NumberPuzzle> replay(int[] moves) {
+        LinkedList<NumberPuzzle> puzzlePath = new LinkedList<NumberPuzzle>();
+        NumberPuzzle board = copy();
+        puzzlePath.add(board);
+        for (int m : moves) {
+            board = board.copy();
+            int r = board.blank_r, c = board.blank_c;
+            if (m == PackedBoard.UP) r--;
+            else if (m == PackedBoard.DOWN) r++;
+            else if (m == PackedBoard.LEFT) c--;
+            else c++;
+            board.tiles[board.blank_r][board.blank_c] = board.tiles[r][c];
+            board.tiles[r][c] = BLANK;
+            board.blank_r = r;
+            board.blank_c = c;
+            puzzlePath.add(board);
+        }
+        return puzzlePath;
+    }
+
+    /**
+     * A* on packed states; the moves to the goal, or null if the frontier runs
+     * dry. Enters the PATH phase of the stats itself to backtrack the moves.
+     */
+    private int[] astar(Heuristic heuristic, SearchBudget budget, SearchStats stats) {
         // Setup
         Node current;
+        PackedBoard packed = PackedBoard.forWidth(width);
+
+        // Init frontier and explored nodes, both indexed by packed state
+        BucketQueue openList = new BucketQueue(9999);
+        ClosedList closedList = new ClosedList(9999);
 
-        // Init frontier and explored nodes
-        Queue<Node> openList;
-        HashSet<Node> closedList = new HashSet<Node>();
-        if (betterH)
-            openList = new PriorityQueue<>(9999, new ManhattanDistance());
-        else
-            openList = new PriorityQueue<>(9999, new HammingDistance());
+        // Reusable successor buffers, so expanding a node allocates nothing
+        // until a child is actually put on the frontier
+        long[] childStates = new long[PackedBoard.NUM_MOVES];
+        int[] childBlanks = new int[PackedBoard.NUM_MOVES];
+        int[] board = new int[packed.cells];
 
         // Set starting node
-        Node startNode = new Node(copy(), null, 0);
+        long startState = pack();
+        packed.unpack(startState, board);
+        Node startNode = new Node(startState, blank_r*width + blank_c, PackedBoard.NO_MOVE, 0,
+                heuristic.estimate(board));
         openList.add(startNode);
 
         // Aystaaah
         while(!openList.isEmpty()) {
             current = openList.poll();    // Remove lowest cost node
-            // Check if solved
-            if (current.isSolved())
-                return reconstructPath(current);
             // Add node to list of visited nodes
-            closedList.add(current);
+            closedList.put(current.state, current.g, current.move);
+            // Check if solved
+            if (current.state == packed.goal) {
+                stats.enter(SearchStats.Phase.PATH);
+                return packed.backtrack(current.state, current.blank, startState,
+                        state -> ClosedList.move(closedList.get(state)));
+            }
+            budget.charge(++stats.expanded);
+            stats.sample(openList.size(), closedList.size());
             // Iterate through neighbors
-            LinkedList<Node> neighbors = getNeighbors(current);
-            for (Node neighbor: neighbors) {
-                // Check if already visited
-                if (closedList.contains(neighbor))
+            int numChildren = packed.expand(current.state, current.blank, childStates, childBlanks);
+            packed.unpack(current.state, board);
+            stats.generated += numChildren;
+            for (int i = 0; i < numChildren; i++) {
+                // Check if already visited. Pattern databases take the minimum over
+                // every blank position, which is admissible but not consistent, so
+                // a cheaper path can still reach a closed state: reopen it then.
+                int closed = closedList.get(childStates[i]);
+                if (closed != ClosedList.ABSENT) {
+                    stats.duplicates++;
+                    if (current.g + 1 < ClosedList.g(closed)) {
+                        closedList.remove(childStates[i]);
+                        int h = heuristic.update(current.h, board, current.blank, childBlanks[i]);
+                        openList.add(new Node(childStates[i], childBlanks[i],
+                                packed.move(current.blank, childBlanks[i]), current.g + 1, h));
+                    }
+                    continue;
+                }
+                // The cost (g) of going to a new state is 1 (not f!)
+                Node queued = openList.get(childStates[i]);
+                if (queued == null) {
+                    int h = heuristic.update(current.h, board, current.blank, childBlanks[i]);
+                    openList.add(new Node(childStates[i], childBlanks[i],
+                            packed.move(current.blank, childBlanks[i]), current.g + 1, h));
                     continue;
-                // Check if not in the frontier
-                if (!openList.contains(neighbor))
-                    openList.add(neighbor);
+                }
+                stats.duplicates++;
+                if (current.g + 1 < queued.g) {
+                    // Shorter path to a frontier state: re-parent it and decrease its key
+                    queued.move = (byte) packed.move(current.blank, childBlanks[i]);
+                    openList.decreaseKey(queued, current.g + 1);
+                }
             }
         }
-        return new LinkedList<NumberPuzzle>();
+        return null;
     }
 
 }
@@ -0,0 +1,175 @@
+package com;
+
+import java.util.Arrays;
+import java.util.function.LongToIntFunction;
+
+/**
+ * Bit-level encoding of a puzzle board as a single long.
+ *
+ * Each cell (row-major, cell = row*width + col) takes one 4-bit nibble, cell 0 in
+ * the lowest nibble, so boards up to 4x4 fit. The blank is stored as tile 0, so
+ * its index is carried next to the state rather than inside it. Sliding a tile
+ * into the blank is then a single XOR, and move generation writes into
+ * caller-owned buffers. One shared instance per width holds the goal and the
+ * move table.
+ */
+final class PackedBoard {
+    static final int BITS = 4;
+    static final long MASK = 0xFL;
+    static final int MAX_WIDTH = 4;
+
+    // Move codes for the blank. Opposite moves add up to 3 so undo(m) == 3 - m.
+    static final int UP = 0, LEFT = 1, RIGHT = 2, DOWN = 3;
+    static final int NUM_MOVES = 4;
+    static final int NO_MOVE = -1;
+
+
+    final int width;
+    final int cells;
+    /** Goal: 1..cells-1 in order with the blank in the last cell */
+    final long goal;
+    final int goalBlank;
+    /** target[cell*NUM_MOVES + move] is the cell the blank moves to, or -1 if off the board */
+    final int[] target;
+
+    private static final PackedBoard[] BY_WIDTH = {
+            null, null, new PackedBoard(2), new PackedBoard(3), new PackedBoard(4)
+    };
+
+    private PackedBoard(int width) {
+        this.width = width;
+        this.cells = width * width;
+        long state = 0;
+        for (int cell = 0; cell < cells - 1; cell++) {
+            state |= (long) (cell + 1) << (cell * BITS);
+        }
+        this.goal = state;
+        this.goalBlank = cells - 1;
+        this.target = targets(width);
+    }
+
+    /** The encoding for a width; only widths up to MAX_WIDTH fit in a long */
+    static PackedBoard forWidth(int width) {
+        if (width < 2 || width > MAX_WIDTH)
+            throw new IllegalArgumentException("A " + width + "x" + width + " board does not fit in a long");
+        return BY_WIDTH[width];
+    }
+
+    static boolean fits(int width) {
+        return width <= MAX_WIDTH;
+    }
+
+    /** Blank move table for any width, shared with the searches that work on flat boards */
+    static int[] targets(int width) {
+        int cells = width * width;
+        int[] target = new int[cells * NUM_MOVES];
+        for (int cell = 0; cell < cells; cell++) {
+            int row = cell / width, col = cell % width;
+            target[cell*NUM_MOVES + UP] = (row > 0) ? cell - width : -1;
+            target[cell*NUM_MOVES + LEFT] = (col > 0) ? cell - 1 : -1;
+            target[cell*NUM_MOVES + RIGHT] = (col < width - 1) ? cell + 1 : -1;
+            target[cell*NUM_MOVES + DOWN] = (row < width - 1) ? cell + width : -1;
+        }
+        return target;
+    }
+
+    /** Tile stored at a cell */
+    static int tile(long state, int cell) {
+        return (int) ((state >>> (cell * BITS)) & MASK);
+    }
+
+    /** Writes the tiles of a state into a flat row-major board */
+    void unpack(long state, int[] board) {
+        for (int cell = 0; cell < cells; cell++) {
+            board[cell] = (int) ((state >>> (cell * BITS)) & MASK);
+        }
+    }
+
+    /** Slides the tile at cell `to` into the (empty) cell `blank` */
+    static long slide(long state, int blank, int to) {
+        long tile = (state >>> (to * BITS)) & MASK;
+        return state ^ (tile << (to * BITS)) ^ (tile << (blank * BITS));
+    }
+
+    /** Move code that takes the blank from `blank` to the neighbouring cell `to` */
+    int move(int blank, int to) {
+        if (to == blank - width)
+            return UP;
+        if (to == blank - 1)
+            return LEFT;
+        return (to == blank + 1) ? RIGHT : DOWN;
+    }
+
+    /**
+     * Moves that lead from `root` to `state`, found by undoing the move that
+     * reached each state until root comes up. `moveOf` gives that move for every
+     * state on the way; searches answer it from their open and closed lists, so
+     * no node has to keep a reference to its parent.
+     */
+    int[] backtrack(long state, int blank, long root, LongToIntFunction moveOf) {
+        int[] moves = new int[64];
+        int n = 0;
+        while (state != root) {
+            int m = moveOf.applyAsInt(state);
+            if (n == moves.length)
+                moves = Arrays.copyOf(moves, n * 2);
+            moves[n++] = m;
+            int from = target[blank*NUM_MOVES + (3 - m)];
+            state = slide(state, blank, from);
+            blank = from;
+        }
+        for (int i = 0, j = n - 1; i < j; i++, j--) {
+            int m = moves[i];
+            moves[i] = moves[j];
+            moves[j] = m;
+        }
+        return Arrays.copyOf(moves, n);
+    }
+
+    /**
+     * Writes every successor of a state into the given buffers and returns how many
+     * there are. Nothing is allocated; both buffers need room for NUM_MOVES entries.
+     */
+    int expand(long state, int blank, long[] outStates, int[] outBlanks) {
+        int count = 0;
+        for (int m = 0; m < NUM_MOVES; m++) {
+            int to = target[blank*NUM_MOVES + m];
+            if (to < 0)
+                continue;
+            outStates[count] = slide(state, blank, to);
+            outBlanks[count] = to;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Board reached by a random walk of the blank from the goal, never undoing the
+     * previous move. Always solvable, in at most `moves` moves.
+     */
+    long randomWalk(java.util.Random rng, int moves) {
+        long state = goal;
+        int blank = goalBlank;
+        int prev = NO_MOVE;
+        for (int i = 0; i < moves; i++) {
+            int m, to;
+            do {
+                m = rng.nextInt(NUM_MOVES);
+                to = target[blank*NUM_MOVES + m];
+            } while (to < 0 || m == 3 - prev);
+            state = slide(state, blank, to);
+            blank = to;
+            prev = m;
+        }
+        return state;
+    }
+
+    /** Cell the blank sits in, found by scanning for the zero nibble */
+    int findBlank(long state) {
+        for (int cell = 0; cell < cells; cell++) {
+            if (tile(state, cell) == NumberPuzzle.BLANK)
+                return cell;
+        }
+        return -1;
+    }
+}
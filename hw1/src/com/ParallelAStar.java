@@ -0,0 +1,315 @@
+package com;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Hash-distributed A* (HDA*).
+ *
+ * Every state has one owning worker, chosen by a Zobrist hash of the board. Each
+ * worker keeps its own open and closed lists for the states it owns and expands
+ * them in its own f order. Children owned by another worker are handed over
+ * through that worker's lock-free inbox, and the owner does the duplicate check.
+ *
+ * Since workers are not globally synchronised on f, a state can be closed before
+ * its cheapest path arrives, so a cheaper arrival reopens it. The first goal
+ * found only sets an incumbent cost; the search ends once no worker holds a node
+ * with f below the incumbent and no hand-over is in flight, which makes the
+ * incumbent optimal.
+ *
+ * Termination uses one counter of outstanding work: each running worker counts
+ * one, and so does every node sitting in an inbox. A sender counts a node before
+ * posting it, a receiver counts itself back in before it takes a node, and the
+ * node is only counted out after it has been processed. The counter can only
+ * reach zero when every worker is idle and every inbox is empty, and nothing
+ * can raise it again after that.
+ *
+ * A worker that throws records the first failure and stops every worker, and
+ * solve() rethrows that failure once they have all returned.
+ */
+final class ParallelAStar {
+    private final NumberPuzzle puzzle;
+    private final PackedBoard packed;
+    private final Worker[] workers;
+    private final SearchStats stats;
+    private final long[][] zobrist;     // [tile][cell]
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private volatile boolean done;
+    private volatile int incumbent = Integer.MAX_VALUE;
+    private NumberPuzzle.Node goal;     // guarded by this
+    private Throwable failure;          // guarded by this
+
+    /** Workers build their heuristics here, so that time counts as whatever phase stats is in */
+    ParallelAStar(NumberPuzzle puzzle, Supplier<Heuristic> heuristics, int threads, SearchStats stats) {
+        this.puzzle = puzzle;
+        this.stats = stats;
+        this.packed = PackedBoard.forWidth(puzzle.width());
+        this.zobrist = new long[packed.cells][packed.cells];
+        Random rng = new Random(4100);
+        for (int tile = 0; tile < packed.cells; tile++) {
+            for (int cell = 0; cell < packed.cells; cell++) {
+                zobrist[tile][cell] = rng.nextLong();
+            }
+        }
+        this.workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(i, heuristics.get());
+        }
+        stats.search = NumberPuzzle.Search.PARALLEL_ASTAR.name();
+        stats.heuristic = workers[0].heuristic.getClass().getSimpleName();
+    }
+
+    long hash(long state) {
+        long hash = 0;
+        for (int cell = 0; cell < packed.cells; cell++) {
+            hash ^= zobrist[PackedBoard.tile(state, cell)][cell];
+        }
+        return hash;
+    }
+
+    private int owner(long hash) {
+        return (int) ((hash >>> 1) % workers.length);
+    }
+
+    /**
+     * Solves from the puzzle's board, adding every worker's counters to the
+     * stats. The path is backtracked from the goal through the owners' open and
+     * closed lists once every worker has stopped.
+     */
+    Solution solve() {
+        if (!puzzle.isSolvable()) {
+            stats.status = "unsolvable";
+            stats.enter(null);
+            return new Solution(puzzle, null, stats);
+        }
+        stats.enter(SearchStats.Phase.SEARCH);
+        long startState = puzzle.pack();
+        int[] board = new int[packed.cells];
+        packed.unpack(startState, board);
+        int startBlank = packed.findBlank(startState);
+        Worker first = workers[owner(hash(startState))];
+        first.insert(new NumberPuzzle.Node(startState, startBlank, PackedBoard.NO_MOVE, 0,
+                first.heuristic.estimate(board)));
+
+        outstanding.set(workers.length);
+        Thread[] threads = new Thread[workers.length];
+        for (int i = 0; i < workers.length; i++) {
+            threads[i] = new Thread(workers[i], "hda-" + i);
+            threads[i].start();
+        }
+        // An interrupt stops the workers, but their state is only read once every
+        // one of them has exited; the interrupt is restored after that
+        boolean interrupted = false;
+        for (Thread t : threads) {
+            while (t.isAlive()) {
+                try {
+                    t.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    done = true;
+                }
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        synchronized (this) {
+            if (failure instanceof Error)
+                throw (Error) failure;
+            if (failure != null)
+                throw (RuntimeException) failure;
+        }
+        for (Worker w : workers) {
+            stats.add(w.stats);
+        }
+        stats.enter(SearchStats.Phase.PATH);
+        int[] moves = null;
+        synchronized (this) {
+            if (goal != null)
+                moves = packed.backtrack(goal.state, goal.blank, startState, this::moveOf);
+        }
+        stats.enter(null);
+        if (moves != null) {
+            stats.status = "solved";
+            stats.bound = 1;
+        }
+        return new Solution(puzzle, moves, stats);
+    }
+
+    /** Move that reached a state, asked of its owner; only safe once the workers are done */
+    private int moveOf(long state) {
+        Worker w = workers[owner(hash(state))];
+        NumberPuzzle.Node n = w.open.get(state);
+        return (n != null) ? n.move : ClosedList.move(w.closed.get(state));
+    }
+
+    /** Keeps the first failure and stops every worker */
+    private synchronized void fail(Throwable t) {
+        if (failure == null)
+            failure = t;
+        done = true;
+    }
+
+    private synchronized void offerSolution(NumberPuzzle.Node n) {
+        if (n.g < incumbent) {
+            goal = n;
+            incumbent = n.g;
+        }
+    }
+
+/*---------------------- Worker ----------------------*/
+
+    private final class Worker implements Runnable {
+        final int id;
+        final Heuristic heuristic;
+        final BucketQueue open = new BucketQueue(9999);
+        final ClosedList closed = new ClosedList(9999);
+        final ConcurrentLinkedQueue<NumberPuzzle.Node> inbox = new ConcurrentLinkedQueue<>();
+        final long[] childStates = new long[PackedBoard.NUM_MOVES];
+        final int[] childBlanks = new int[PackedBoard.NUM_MOVES];
+        final int[] board = new int[packed.cells];
+        final SearchStats stats = new SearchStats(NumberPuzzle.Search.PARALLEL_ASTAR.name());
+
+        Worker(int id, Heuristic heuristic) {
+            this.id = id;
+            this.heuristic = heuristic;
+        }
+
+        @Override
+        public void run() {
+            try {
+                search();
+            } catch (Throwable t) {
+                fail(t);
+            }
+        }
+
+        private void search() {
+            while (!done) {
+                NumberPuzzle.Node received;
+                while ((received = inbox.poll()) != null) {
+                    insert(received);
+                    outstanding.decrementAndGet();
+                }
+                if (!open.isEmpty() && open.minF() < incumbent) {
+                    expand(open.poll());
+                    continue;
+                }
+                // Nothing useful left here: count ourselves out and wait for work
+                if (outstanding.decrementAndGet() == 0) {
+                    done = true;
+                    return;
+                }
+                while (!done && inbox.isEmpty()) {
+                    LockSupport.parkNanos(10_000);
+                }
+                if (done)
+                    return;
+                outstanding.incrementAndGet();
+            }
+        }
+
+        /** Duplicate check by the owner; a cheaper path reopens a closed state */
+        void insert(NumberPuzzle.Node n) {
+            int old = closed.get(n.state);
+            if (old != ClosedList.ABSENT) {
+                stats.duplicates++;
+                if (n.g >= ClosedList.g(old))
+                    return;
+                closed.remove(n.state);
+                open.add(n);
+                return;
+            }
+            NumberPuzzle.Node queued = open.get(n.state);
+            if (queued == null) {
+                open.add(n);
+                return;
+            }
+            stats.duplicates++;
+            if (n.g < queued.g) {
+                queued.move = n.move;
+                open.decreaseKey(queued, n.g);
+            }
+        }
+
+        void expand(NumberPuzzle.Node current) {
+            // Closed even when it is the goal, so the path can be backtracked through it
+            closed.put(current.state, current.g, current.move);
+            if (current.state == packed.goal) {
+                offerSolution(current);
+                return;
+            }
+            stats.expanded++;
+            stats.sample(open.size(), closed.size());
+            long hash = hash(current.state);
+            int numChildren = packed.expand(current.state, current.blank, childStates, childBlanks);
+            packed.unpack(current.state, board);
+            stats.generated += numChildren;
+            for (int i = 0; i < numChildren; i++) {
+                // Going straight back to the parent can never help
+                int move = packed.move(current.blank, childBlanks[i]);
+                if (move == 3 - current.move) {
+                    stats.duplicates++;
+                    continue;
+                }
+                int to = childBlanks[i];
+                int tile = board[to];
+                long childHash = hash ^ zobrist[tile][to] ^ zobrist[tile][current.blank]
+                        ^ zobrist[NumberPuzzle.BLANK][current.blank] ^ zobrist[NumberPuzzle.BLANK][to];
+                int h = heuristic.update(current.h, board, current.blank, to);
+                if (current.g + 1 + h >= incumbent)
+                    continue;
+                NumberPuzzle.Node child = new NumberPuzzle.Node(childStates[i], to, move, current.g + 1, h);
+                int owner = owner(childHash);
+                if (owner == id) {
+                    insert(child);
+                } else {
+                    outstanding.incrementAndGet();
+                    workers[owner].inbox.add(child);
+                }
+            }
+        }
+    }
+
+/*-------------------- Benchmark ---------------------*/
+
+    /**
+     * Prints wall time and speedup over the sequential A* for 1 to 32 threads on
+     * a fixed set of random-walk instances. Optional args: heuristic ("pdb" or
+     * "manhattan"), number of instances, walk length.
+     */
+    public static void main(String[] args) {
+        boolean pdb = args.length > 0 && args[0].equals("pdb");
+        int instances = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+        int walk = (args.length > 2) ? Integer.parseInt(args[2]) : 200;
+        if (pdb)
+            NumberPuzzle.PATTERN_DB = "pdb";
+
+        Random rng = new Random(2018);
+        PackedBoard packed = PackedBoard.forWidth(NumberPuzzle.PUZZLE_WIDTH);
+        NumberPuzzle[] corpus = new NumberPuzzle[instances];
+        for (int i = 0; i < instances; i++) {
+            corpus[i] = NumberPuzzle.unpack(packed.randomWalk(rng, walk), packed.width);
+        }
+
+        long start = System.nanoTime();
+        for (NumberPuzzle p : corpus) {
+            p.solve(true);
+        }
+        double sequential = (System.nanoTime() - start) / 1e6;
+        System.out.printf("threads  time(ms)  speedup%n");
+        System.out.printf("%7s  %8.1f  %7.2f%n", "seq", sequential, 1.0);
+        for (int threads = 1; threads <= 32; threads *= 2) {
+            start = System.nanoTime();
+            for (NumberPuzzle p : corpus) {
+                new ParallelAStar(p, () -> p.heuristic(true), threads,
+                        new SearchStats(NumberPuzzle.Search.PARALLEL_ASTAR.name())).solve();
+            }
+            double time = (System.nanoTime() - start) / 1e6;
+            System.out.printf("%7d  %8.1f  %7.2f%n", threads, time, sequential / time);
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package com;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * One pattern of a disjoint additive pattern database.
+ *
+ * For a subset of the tiles the table holds, for every placement of those tiles,
+ * the fewest moves of pattern tiles needed to bring them home; moves of any other
+ * tile are free. Patterns that share no tiles count disjoint sets of moves, so
+ * their values can be added into one admissible estimate.
+ *
+ * A placement is indexed by its rank as a partial permutation, one byte per
+ * entry. Tables are built once by a retrograde breadth-first search from the goal,
+ * written to disk and then memory-mapped read-only, so every solver process on a
+ * box shares the same pages. Lookups never write, so one instance can be shared
+ * by any number of threads.
+ *
+ * The value of a pattern is the minimum over every cell the blank could be in,
+ * so one move can lower the sum by more than one: the estimate is admissible but
+ * not consistent. Every search mode that keeps a closed list therefore reopens a
+ * state when a cheaper path reaches it.
+ */
+final class PatternDatabase {
+    private static final int MAGIC = 0x50444231;    // "PDB1"
+    private static final int UNSEEN = 0xFF;
+
+    /** 6-6-3 split of the 15-puzzle tiles, for the goal with the blank in the last cell */
+    static final int[][] PARTITION_663 = {
+            {1, 5, 6, 9, 10, 13},
+            {7, 8, 11, 12, 14, 15},
+            {2, 3, 4}
+    };
+
+    /** 4-4 split of the 8-puzzle tiles */
+    static final int[][] PARTITION_44 = {
+            {1, 2, 4, 5},
+            {3, 6, 7, 8}
+    };
+
+    /** The partition used for a width, or null if none fits in memory */
+    static int[][] partition(int width) {
+        switch (width) {
+            case 3: return PARTITION_44;
+            case 4: return PARTITION_663;
+            default: return null;
+        }
+    }
+
+    private final int width;
+    private final int cells;
+    private final int[] tiles;      // pattern tiles, in rank order
+    private final int[] slot;       // slot[tile] = index into tiles, or -1
+    private final ByteBuffer table;
+
+    private PatternDatabase(int width, int[] tiles, ByteBuffer table) {
+        this.width = width;
+        this.cells = width * width;
+        this.tiles = tiles.clone();
+        this.slot = new int[cells];
+        Arrays.fill(slot, -1);
+        for (int i = 0; i < tiles.length; i++) {
+            slot[tiles[i]] = i;
+        }
+        this.table = table;
+    }
+
+    int[] tiles() {
+        return tiles.clone();
+    }
+
+    int width() {
+        return width;
+    }
+
+    /** Number of placements of k tiles: cells! / (cells - k)! */
+    static long size(int cells, int k) {
+        long size = 1;
+        for (int i = 0; i < k; i++) {
+            size *= cells - i;
+        }
+        return size;
+    }
+
+    /**
+     * Moves needed by the pattern tiles on a flat board (row-major, BLANK for the
+     * blank). `pos` is caller-owned scratch with one entry per pattern tile.
+     */
+    int value(int[] board, int[] pos) {
+        locate(board, pos);
+        return table.get(rank(pos)) & 0xFF;
+    }
+
+    /** Same as value, but with `tile` moved to cell `to` */
+    int valueAfter(int[] board, int tile, int to, int[] pos) {
+        locate(board, pos);
+        pos[slot[tile]] = to;
+        return table.get(rank(pos)) & 0xFF;
+    }
+
+    private void locate(int[] board, int[] pos) {
+        for (int cell = 0; cell < cells; cell++) {
+            int s = slot[board[cell]];
+            if (s >= 0)
+                pos[s] = cell;
+        }
+    }
+
+    /** Mixed-radix rank of distinct cells: digit i counts the free cells below pos[i] */
+    private int rank(int[] pos) {
+        long used = 0;
+        int rank = 0;
+        for (int i = 0; i < tiles.length; i++) {
+            int p = pos[i];
+            rank = rank * (cells - i) + p - Long.bitCount(used & ((1L << p) - 1));
+            used |= 1L << p;
+        }
+        return rank;
+    }
+
+    /** Inverse of rank: fills pos with the placement and returns the occupied-cell mask */
+    private long unrank(int rank, int[] pos) {
+        int k = tiles.length;
+        for (int i = k - 1; i >= 0; i--) {
+            pos[i] = rank % (cells - i);
+            rank /= cells - i;
+        }
+        long used = 0;
+        for (int i = 0; i < k; i++) {
+            // digit d means the d-th free cell
+            int cell = -1;
+            for (int d = pos[i]; d >= 0; d--) {
+                do {
+                    cell++;
+                } while ((used & (1L << cell)) != 0);
+            }
+            pos[i] = cell;
+            used |= 1L << cell;
+        }
+        return used;
+    }
+
+/*--------------------- Building ---------------------*/
+
+    /**
+     * Retrograde 0-1 BFS from the goal over (placement, blank cell) pairs. Sliding a
+     * pattern tile costs 1, sliding any other tile costs 0; the stored value is the
+     * minimum over blank cells. Needs size(cells, k) * cells bytes while building.
+     */
+    static PatternDatabase build(int width, int[] tiles) {
+        int cells = width * width;
+        int k = tiles.length;
+        long states = size(cells, k) * cells;
+        if (states > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Pattern of " + k + " tiles is too large to build in memory");
+
+        PatternDatabase pdb = new PatternDatabase(width, tiles, null);
+        byte[] dist = new byte[(int) states];
+        Arrays.fill(dist, (byte) UNSEEN);
+
+        int[] target = PackedBoard.targets(width);
+
+        int[] pos = new int[k];
+        for (int i = 0; i < k; i++) {
+            pos[i] = tiles[i] - 1;
+        }
+        int start = pdb.rank(pos) * cells + (cells - 1);
+        dist[start] = 0;
+
+        // `layer` holds states at the current depth (0-cost moves stay in it),
+        // `next` the ones a pattern-tile move further away
+        IntStack layer = new IntStack();
+        IntStack next = new IntStack();
+        layer.push(start);
+        int depth = 0;
+        while (!layer.isEmpty()) {
+            while (!layer.isEmpty()) {
+                int s = layer.pop();
+                if ((dist[s] & 0xFF) != depth)
+                    continue;   // lowered to an earlier depth after it was queued
+                int rank = s / cells;
+                int blank = s % cells;
+                long used = pdb.unrank(rank, pos);
+                for (int m = 0; m < PackedBoard.NUM_MOVES; m++) {
+                    int to = target[blank*PackedBoard.NUM_MOVES + m];
+                    if (to < 0)
+                        continue;
+                    if ((used & (1L << to)) == 0) {
+                        int t = rank * cells + to;
+                        if ((dist[t] & 0xFF) > depth) {
+                            dist[t] = (byte) depth;
+                            layer.push(t);
+                        }
+                    } else {
+                        // A pattern tile slides into the blank
+                        int i = 0;
+                        while (pos[i] != to) {
+                            i++;
+                        }
+                        pos[i] = blank;
+                        int t = pdb.rank(pos) * cells + to;
+                        pos[i] = to;
+                        if ((dist[t] & 0xFF) == UNSEEN) {
+                            dist[t] = (byte) (depth + 1);
+                            next.push(t);
+                        }
+                    }
+                }
+            }
+            IntStack swap = layer;
+            layer = next;
+            next = swap;
+            depth++;
+        }
+
+        byte[] values = new byte[(int) size(cells, k)];
+        for (int rank = 0; rank < values.length; rank++) {
+            int best = UNSEEN;
+            for (int blank = 0; blank < cells; blank++) {
+                best = Math.min(best, dist[rank*cells + blank] & 0xFF);
+            }
+            values[rank] = (byte) best;
+        }
+        return new PatternDatabase(width, tiles, ByteBuffer.wrap(values));
+    }
+
+    /** Growable int stack for the BFS layers */
+    private static final class IntStack {
+        private int[] items = new int[1 << 12];
+        private int size;
+
+        void push(int item) {
+            if (size == items.length)
+                items = Arrays.copyOf(items, size * 2);
+            items[size++] = item;
+        }
+
+        int pop() {
+            return items[--size];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+    }
+
+/*---------------------- Files -----------------------*/
+
+    /** Header (magic, width, tile count, tiles) followed by one byte per placement */
+    void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(width);
+            out.writeInt(tiles.length);
+            for (int tile : tiles) {
+                out.writeInt(tile);
+            }
+            ByteBuffer values = table.duplicate();
+            values.clear();
+            byte[] chunk = new byte[1 << 16];
+            while (values.hasRemaining()) {
+                int n = Math.min(chunk.length, values.remaining());
+                values.get(chunk, 0, n);
+                out.write(chunk, 0, n);
+            }
+        }
+    }
+
+    /** Maps a table written by write() read-only into memory */
+    static PatternDatabase load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, 12);
+            if (header.getInt(0) != MAGIC)
+                throw new IOException("Not a pattern database: " + file);
+            int width = header.getInt(4);
+            int k = header.getInt(8);
+            ByteBuffer tileBytes = channel.map(FileChannel.MapMode.READ_ONLY, 12, 4L * k);
+            int[] tiles = new int[k];
+            for (int i = 0; i < k; i++) {
+                tiles[i] = tileBytes.getInt(4 * i);
+            }
+            long entries = size(width * width, k);
+            if (channel.size() != 12 + 4L * k + entries)
+                throw new IOException("Truncated pattern database: " + file);
+            // The mapping stays valid after the channel is closed
+            ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, 12 + 4L * k, entries);
+            return new PatternDatabase(width, tiles, table);
+        }
+    }
+
+    /**
+     * Loads every pattern of a partition from a directory, building and writing
+     * any table that is not there yet.
+     */
+    static PatternDatabase[] loadOrBuild(Path dir, int width, int[][] partition) throws IOException {
+        Files.createDirectories(dir);
+        PatternDatabase[] dbs = new PatternDatabase[partition.length];
+        for (int i = 0; i < partition.length; i++) {
+            StringBuilder name = new StringBuilder("pdb-" + width);
+            for (int tile : partition[i]) {
+                name.append('-').append(tile);
+            }
+            Path file = dir.resolve(name + ".bin");
+            if (!Files.exists(file)) {
+                Path tmp = dir.resolve(name + ".tmp");
+                build(width, partition[i]).write(tmp);
+                Files.move(tmp, file, java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+            }
+            dbs[i] = load(file);
+        }
+        return dbs;
+    }
+}
@@ -0,0 +1,61 @@
+package com;
+
+/**
+ * Lehmer-code ranking of packed states (see PackedBoard) as permutations of
+ * 0..cells-1, the blank being tile 0.
+ *
+ * Digit i of the code counts the tiles in cells after i that are smaller than
+ * the tile in cell i; read in the mixed radix (cells - i), the digits give every
+ * one of the cells! boards its own rank in [0, cells!). Only half of them are
+ * reachable from the goal, but halving the range by parity does not give a
+ * dense index once the blank sits in one of the last two cells, so ranks span
+ * every permutation. 16! still fits in a long.
+ */
+final class PermutationRank {
+    private PermutationRank() {
+    }
+
+    /** Number of boards with `cells` cells: cells! */
+    static long count(int cells) {
+        long count = 1;
+        for (int i = 2; i <= cells; i++) {
+            count *= i;
+        }
+        return count;
+    }
+
+    static long rank(long state, int cells) {
+        int used = 0;
+        long rank = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            int tile = PackedBoard.tile(state, cell);
+            // Smaller tiles not used by earlier cells are the ones in later cells
+            rank = rank * (cells - cell) + tile - Integer.bitCount(used & ((1 << tile) - 1));
+            used |= 1 << tile;
+        }
+        return rank;
+    }
+
+    /** Inverse of rank */
+    static long unrank(long rank, int cells) {
+        int[] digits = new int[cells];
+        for (int cell = cells - 1; cell >= 0; cell--) {
+            digits[cell] = (int) (rank % (cells - cell));
+            rank /= cells - cell;
+        }
+        int used = 0;
+        long state = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            // Digit d means the d-th smallest tile not used yet
+            int tile = -1;
+            for (int d = digits[cell]; d >= 0; d--) {
+                do {
+                    tile++;
+                } while ((used & (1 << tile)) != 0);
+            }
+            used |= 1 << tile;
+            state |= (long) tile << (cell * PackedBoard.BITS);
+        }
+        return state;
+    }
+}
@@ -0,0 +1,235 @@
+package com;
+
+import java.util.Iterator;
+import java.util.TreeSet;
+
+/**
+ * Simplified memory-bounded A* (SMA*, Russell 1992) with a hard cap on nodes.
+ *
+ * The search tree is kept explicitly, and each step generates only one more
+ * child of the best node: lowest f, deepest first. Once the cap is reached, the
+ * worst leaf (highest f, shallowest first) is dropped to make room. Its parent
+ * remembers the lowest f among its dropped children, and a node whose children
+ * have all been generated takes the lowest f among them as its own, so f values
+ * are backed up the tree and a dropped subtree is only regenerated once
+ * everything else looks worse. A child that would be deeper than the cap allows
+ * gets an infinite f, since the path to it could never be held.
+ *
+ * This is a tree search: the only duplicate it avoids is undoing the last move,
+ * like IDA*. The solution is optimal whenever the optimal path fits under the
+ * cap; when no path fits, solve throws SearchBudget.Exceeded("memory").
+ */
+final class SMAStar {
+    private static final int INFINITE = Integer.MAX_VALUE;
+    /** Entry with its child array and its share of the open set */
+    static final int ENTRY_BYTES = 72 + 32 + 40;
+
+    private final NumberPuzzle puzzle;
+    private final PackedBoard packed;
+    private final Heuristic heuristic;
+    private final SearchBudget budget;
+    private final SearchStats stats;
+    private final int maxNodes;
+
+    private final TreeSet<Entry> open = new TreeSet<>((a, b) -> {
+        if (a.f != b.f)
+            return Integer.compare(a.f, b.f);
+        if (a.g != b.g)
+            return Integer.compare(b.g, a.g);
+        return Long.compare(a.id, b.id);
+    });
+    private int inMemory;
+    private long nextId;
+    private final int[] board;
+
+    SMAStar(NumberPuzzle puzzle, Heuristic heuristic, SearchBudget budget, SearchStats stats, int maxNodes) {
+        if (maxNodes < 2)
+            throw new IllegalArgumentException("SMA* needs room for at least 2 nodes");
+        this.puzzle = puzzle;
+        this.packed = PackedBoard.forWidth(puzzle.width());
+        this.heuristic = heuristic;
+        this.budget = budget;
+        this.stats = stats;
+        this.maxNodes = maxNodes;
+        this.board = new int[packed.cells];
+    }
+
+/*----------------------- Entry ----------------------*/
+
+    /** A node of the search tree with its children that are still in memory */
+    private final class Entry {
+        final long id = nextId++;
+        final long state;
+        final int blank, move, g, h;
+        int f;
+        final Entry parent;
+        final Entry[] children = new Entry[PackedBoard.NUM_MOVES];
+        int childCount;
+        int generated;                  // moves generated since the last round started, as bits
+        int forgotten = INFINITE;       // lowest f among children dropped since then
+        boolean queued;
+
+        Entry(long state, int blank, int move, Entry parent, int h) {
+            this.state = state;
+            this.blank = blank;
+            this.move = move;
+            this.parent = parent;
+            this.g = (parent == null) ? 0 : parent.g + 1;
+            this.h = h;
+        }
+
+        /** Bits of the moves that lead somewhere new: on the board and not back */
+        int legal() {
+            int bits = 0;
+            for (int m = 0; m < PackedBoard.NUM_MOVES; m++) {
+                if (packed.target[blank*PackedBoard.NUM_MOVES + m] >= 0 && m != 3 - move)
+                    bits |= 1 << m;
+            }
+            return bits;
+        }
+
+        int inMemoryBits() {
+            int bits = 0;
+            for (int m = 0; m < PackedBoard.NUM_MOVES; m++) {
+                if (children[m] != null)
+                    bits |= 1 << m;
+            }
+            return bits;
+        }
+    }
+
+    /** Moves from the puzzle's board to the goal, or null if it is unsolvable */
+    int[] solve() {
+        if (!puzzle.isSolvable())
+            return null;
+        long start = puzzle.pack();
+        packed.unpack(start, board);
+        Entry root = new Entry(start, packed.findBlank(start), PackedBoard.NO_MOVE, null, heuristic.estimate(board));
+        root.f = root.h;
+        enqueue(root);
+        inMemory = 1;
+
+        while (true) {
+            Entry best = open.first();
+            if (best.f == INFINITE)
+                throw new SearchBudget.Exceeded("memory");
+            if (best.state == packed.goal)
+                return path(best);
+            budget.charge(++stats.expanded);
+            Entry child = nextChild(best);
+            stats.generated++;
+
+            int legal = best.legal();
+            if ((best.generated & legal) == legal)
+                backup(best);
+            // Nothing left to generate until a child is dropped
+            if (best.inMemoryBits() == legal)
+                dequeue(best);
+
+            if (inMemory >= maxNodes && !dropWorstLeaf(best)) {
+                // Nothing else can go: forget the new child straight away
+                best.children[child.move] = null;
+                best.childCount--;
+                best.forgotten = Math.min(best.forgotten, child.f);
+                if (!best.queued)
+                    enqueue(best);
+                continue;
+            }
+            enqueue(child);
+            inMemory++;
+            stats.sample(open.size(), inMemory - open.size());
+            stats.retainedBytes = Math.max(stats.retainedBytes, (long) inMemory * ENTRY_BYTES);
+        }
+    }
+
+    /**
+     * Generates the next child of `n` that is not in memory, starting a new round
+     * over the dropped ones once every move has been tried in this round.
+     */
+    private Entry nextChild(Entry n) {
+        int legal = n.legal();
+        int held = n.inMemoryBits();
+        if ((n.generated & legal) == legal) {
+            n.generated = held;
+            n.forgotten = INFINITE;
+        }
+        int m = Integer.numberOfTrailingZeros(legal & ~n.generated & ~held);
+        n.generated |= 1 << m;
+        int to = packed.target[n.blank*PackedBoard.NUM_MOVES + m];
+        packed.unpack(n.state, board);
+        Entry child = new Entry(PackedBoard.slide(n.state, n.blank, to), to, m, n,
+                heuristic.update(n.h, board, n.blank, to));
+        if (child.state != packed.goal && child.g >= maxNodes - 1)
+            child.f = INFINITE;
+        else
+            child.f = Math.max(n.f, child.g + child.h);
+        n.children[m] = child;
+        n.childCount++;
+        return child;
+    }
+
+    /** Once every child has been generated, n's f becomes the lowest of theirs; repeated up the tree */
+    private void backup(Entry n) {
+        while (n != null) {
+            int legal = n.legal();
+            if ((n.generated & legal) != legal)
+                return;
+            int f = n.forgotten;
+            for (Entry c : n.children) {
+                if (c != null)
+                    f = Math.min(f, c.f);
+            }
+            if (f == n.f)
+                return;
+            setF(n, f);
+            n = n.parent;
+        }
+    }
+
+    /** Drops the worst leaf other than `keep`; false if there is none to drop */
+    private boolean dropWorstLeaf(Entry keep) {
+        Iterator<Entry> worst = open.descendingIterator();
+        while (worst.hasNext()) {
+            Entry w = worst.next();
+            if (w == keep || w.childCount > 0 || w.parent == null)
+                continue;
+            worst.remove();
+            w.queued = false;
+            inMemory--;
+            Entry parent = w.parent;
+            parent.children[w.move] = null;
+            parent.childCount--;
+            parent.forgotten = Math.min(parent.forgotten, w.f);
+            if (!parent.queued)
+                enqueue(parent);
+            return true;
+        }
+        return false;
+    }
+
+    private void setF(Entry n, int f) {
+        if (n.queued)
+            open.remove(n);
+        n.f = f;
+        if (n.queued)
+            open.add(n);
+    }
+
+    private void enqueue(Entry n) {
+        n.queued = true;
+        open.add(n);
+    }
+
+    private void dequeue(Entry n) {
+        open.remove(n);
+        n.queued = false;
+    }
+
+    private static int[] path(Entry goal) {
+        int[] moves = new int[goal.g];
+        for (Entry n = goal; n.parent != null; n = n.parent) {
+            moves[n.g - 1] = n.move;
+        }
+        return moves;
+    }
+}
@@ -0,0 +1,50 @@
+package com;
+
+/**
+ * Per-solve limits on wall time and expanded nodes.
+ *
+ * The clock starts when the budget is created, so a batch job creates one when a
+ * puzzle is picked up rather than when it is queued. Searches call charge() once
+ * per expansion; reading the clock is only done every CLOCK_INTERVAL nodes.
+ * NumberPuzzle.solution turns Exceeded into a time-limit or node-limit status.
+ * SMAStar also throws it, as "memory", when no path fits under its node cap.
+ */
+final class SearchBudget {
+    private static final int CLOCK_INTERVAL = 1024;
+    private static final SearchBudget UNLIMITED = new SearchBudget(0, 0);
+
+    private final long deadline;    // System.nanoTime() value, 0 for no time limit
+    private final long maxNodes;    // 0 for no node limit
+
+    /** No limits at all */
+    static SearchBudget unlimited() {
+        return UNLIMITED;
+    }
+
+    /** A zero limit means unlimited */
+    SearchBudget(long millis, long maxNodes) {
+        this.deadline = (millis > 0) ? System.nanoTime() + millis * 1_000_000 : 0;
+        this.maxNodes = maxNodes;
+    }
+
+    /** Throws Exceeded once `expanded` nodes are over either limit */
+    void charge(long expanded) {
+        if (maxNodes > 0 && expanded > maxNodes)
+            throw new Exceeded("node");
+        if (deadline != 0 && expanded % CLOCK_INTERVAL == 0 && System.nanoTime() - deadline > 0)
+            throw new Exceeded("time");
+    }
+
+    /** Unwinds a search that ran out of budget; carries no stack trace */
+    static final class Exceeded extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        /** "time", "node" or "memory" */
+        final String limit;
+
+        Exceeded(String limit) {
+            super(limit + " budget exceeded", null, false, false);
+            this.limit = limit;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com;
+
+import java.util.Locale;
+
+/**
+ * Counters and timings for one solve, filled in by the search as it runs.
+ *
+ * generated counts every successor produced, expanded every node whose
+ * successors were produced, and duplicates the successors dropped or merged
+ * because their state was already known. Peaks are sampled once per expansion.
+ * retainedBytes estimates the heap the search held at its peak from the node
+ * count; it is meant for sizing heaps and node budgets, not for exact
+ * accounting. Wall time is split into phases: building the heuristic, the
+ * search itself and rebuilding the path.
+ */
+final class SearchStats {
+    /** Frontier node plus its share of the open list's index, with compressed oops */
+    static final int NODE_BYTES = 40 + 24;
+    /** ClosedList entry: key and g/move word at up to half load */
+    static final int CLOSED_BYTES = 2 * (8 + 4);
+    /** One level of IDA* recursion: stack frame plus path entry */
+    static final int FRAME_BYTES = 96;
+
+    enum Phase { HEURISTIC, SEARCH, PATH }
+
+    /** Set by the solve once it knows the effective mode and heuristic */
+    String search;
+    String heuristic = "none";
+    String status = "no-solution";
+    int length = -1;
+    /** Proven ratio of length to the optimal length: 1 for exact searches, NaN without a solution */
+    double bound = Double.NaN;
+
+    long generated;
+    long expanded;
+    long duplicates;
+    long peakOpen;
+    long peakClosed;
+    long retainedBytes;
+
+    private final long[] phaseNanos = new long[Phase.values().length];
+    private Phase phase;
+    private long phaseStart;
+
+    SearchStats(String search) {
+        this.search = search;
+    }
+
+    SearchStats(String search, String heuristic) {
+        this.search = search;
+        this.heuristic = heuristic;
+    }
+
+    /** Ends the current phase, if any, and starts timing `next` (null to stop) */
+    void enter(Phase next) {
+        long now = System.nanoTime();
+        if (phase != null)
+            phaseNanos[phase.ordinal()] += now - phaseStart;
+        phase = next;
+        phaseStart = now;
+    }
+
+    long nanos(Phase p) {
+        return phaseNanos[p.ordinal()];
+    }
+
+    /** Records the list sizes after an expansion */
+    void sample(long open, long closed) {
+        if (open > peakOpen)
+            peakOpen = open;
+        if (closed > peakClosed)
+            peakClosed = closed;
+        long bytes = open * NODE_BYTES + closed * CLOSED_BYTES;
+        if (bytes > retainedBytes)
+            retainedBytes = bytes;
+    }
+
+    /** Adds another worker's counters; peaks add up since the workers run together */
+    void add(SearchStats other) {
+        generated += other.generated;
+        expanded += other.expanded;
+        duplicates += other.duplicates;
+        peakOpen += other.peakOpen;
+        peakClosed += other.peakClosed;
+        retainedBytes += other.retainedBytes;
+    }
+
+    /**
+     * Effective branching factor b*: a uniform tree of depth `length` with
+     * generated + 1 nodes, i.e. generated + 1 = 1 + b* + b*^2 + ... + b*^length.
+     * NaN without a solution of at least one move.
+     */
+    double branchingFactor() {
+        if (length < 1)
+            return Double.NaN;
+        double lo = 0, hi = Math.max(1, generated);
+        for (int i = 0; i < 100; i++) {
+            double b = (lo + hi) / 2;
+            double nodes = 0, term = 1;
+            for (int d = 1; d <= length && nodes <= generated; d++) {
+                term *= b;
+                nodes += term;
+            }
+            if (nodes > generated)
+                hi = b;
+            else
+                lo = b;
+        }
+        return (lo + hi) / 2;
+    }
+
+    /** The fields as JSON members, without braces, so callers can add their own */
+    String jsonFields() {
+        double b = branchingFactor();
+        return String.format(Locale.ROOT,
+                "\"search\":%s,\"heuristic\":%s,\"status\":%s,\"length\":%d,\"bound\":%s,"
+                        + "\"generated\":%d,\"expanded\":%d,\"duplicates\":%d,"
+                        + "\"peakOpen\":%d,\"peakClosed\":%d,\"retainedBytes\":%d,"
+                        + "\"heuristicMs\":%.3f,\"searchMs\":%.3f,\"pathMs\":%.3f,\"branchingFactor\":%s",
+                jsonString(search), jsonString(heuristic), jsonString(status), length,
+                Double.isNaN(bound) ? "null" : String.format(Locale.ROOT, "%.4f", bound),
+                generated, expanded, duplicates,
+                peakOpen, peakClosed, retainedBytes,
+                nanos(Phase.HEURISTIC) / 1e6, nanos(Phase.SEARCH) / 1e6, nanos(Phase.PATH) / 1e6,
+                Double.isNaN(b) ? "null" : String.format(Locale.ROOT, "%.4f", b));
+    }
+
+    /** A JSON string literal, quotes included, or null; escapes quotes, backslashes and control characters */
+    static String jsonString(String s) {
+        if (s == null)
+            return "null";
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\')
+                sb.append('\\').append(c);
+            else if (c == '\n')
+                sb.append("\\n");
+            else if (c == '\r')
+                sb.append("\\r");
+            else if (c == '\t')
+                sb.append("\\t");
+            else if (c < 0x20)
+                sb.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            else
+                sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+
+    /** One JSON object on one line */
+    String toJson() {
+        return "{" + jsonFields() + "}";
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+}
@@ -0,0 +1,48 @@
+package com;
+
+import java.util.LinkedList;
+
+/**
+ * Result of one solve: the blank's moves from the start (PackedBoard move codes,
+ * null if there is no solution) and its stats. The boards along the way are only
+ * built when path() is first asked for.
+ */
+final class Solution {
+    private final NumberPuzzle start;
+    private final int[] moves;
+    private LinkedList<NumberPuzzle> path;
+    final SearchStats stats;
+
+    Solution(NumberPuzzle start, int[] moves, SearchStats stats) {
+        this.start = start;
+        this.moves = moves;
+        this.stats = stats;
+        stats.length = (moves == null) ? -1 : moves.length;
+    }
+
+    boolean solved() {
+        return moves != null;
+    }
+
+    /** Number of moves, or -1 without a solution */
+    int length() {
+        return stats.length;
+    }
+
+    /** PackedBoard move codes, or null without a solution */
+    int[] moveCodes() {
+        return (moves == null) ? null : moves.clone();
+    }
+
+    /** The moves as U/L/R/D letters, or "-" without a solution */
+    String moves() {
+        return (moves == null) ? "-" : NumberPuzzle.moveString(moves);
+    }
+
+    /** Boards from start to goal, replayed from the moves; empty without a solution */
+    LinkedList<NumberPuzzle> path() {
+        if (path == null)
+            path = (moves == null) ? new LinkedList<NumberPuzzle>() : start.replay(moves);
+        return path;
+    }
+}
@@ -0,0 +1,231 @@
+package com;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of optimal solutions, keyed by canonical packed state.
+ *
+ * Transposing a board about its main diagonal and relabelling every tile with
+ * the goal tile of its transposed cell leaves the goal where it is, and turns
+ * every solution into one of the same length with UP and LEFT (and DOWN and
+ * RIGHT) swapped. A board and its mirror image therefore share one entry, under
+ * whichever of the two packs to the smaller long, and lookups from the other
+ * side get their moves swapped back. With `cachePaths` set, every board along a
+ * stored solution is cached too, since the rest of an optimal path is itself
+ * optimal.
+ *
+ * Only boards that fit PackedBoard and are permutations of their tiles are
+ * cached: pack() does not mask, so a tile out of range could alias a valid
+ * board's state. States of different widths never collide since they differ in
+ * how many nibbles are zero. Entries hold the moves packed four to a byte. All
+ * methods are synchronized, so one cache can be shared by every BatchSolver
+ * worker. save and load keep a snapshot on disk.
+ */
+final class SolutionCache {
+    private static final int MAGIC = 0x534f4c31;    // "SOL1"
+
+    private final int capacity;
+    private final boolean cachePaths;
+    private final LinkedHashMap<Long, byte[]> entries;
+
+    private long hits, mirroredHits, misses, puts, evictions;
+
+    // Per width: cell -> transposed cell, tile -> relabelled tile
+    private static final int[][] TRANSPOSE = new int[PackedBoard.MAX_WIDTH + 1][];
+    private static final int[][] RELABEL = new int[PackedBoard.MAX_WIDTH + 1][];
+
+    static {
+        for (int width = 2; width <= PackedBoard.MAX_WIDTH; width++) {
+            int cells = width * width;
+            TRANSPOSE[width] = new int[cells];
+            RELABEL[width] = new int[cells];
+            for (int cell = 0; cell < cells; cell++) {
+                TRANSPOSE[width][cell] = (cell % width) * width + cell / width;
+            }
+            // Tile t belongs in cell t - 1; the blank stays the blank
+            for (int tile = 1; tile < cells; tile++) {
+                RELABEL[width][tile] = TRANSPOSE[width][tile - 1] + 1;
+            }
+        }
+    }
+
+    SolutionCache(int capacity, boolean cachePaths) {
+        this.capacity = capacity;
+        this.cachePaths = cachePaths;
+        this.entries = new LinkedHashMap<Long, byte[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                if (size() <= SolutionCache.this.capacity)
+                    return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /** The board mirrored about its main diagonal, relabelled so the goal maps to itself */
+    static long transpose(long state, int width) {
+        long mirrored = 0;
+        for (int cell = 0; cell < width * width; cell++) {
+            long tile = RELABEL[width][PackedBoard.tile(state, cell)];
+            mirrored |= tile << (TRANSPOSE[width][cell] * PackedBoard.BITS);
+        }
+        return mirrored;
+    }
+
+    /**
+     * Optimal moves from a board (PackedBoard move codes), or null on a miss.
+     * Boards that do not fit PackedBoard or are not permutations are always misses.
+     */
+    synchronized int[] get(NumberPuzzle puzzle) {
+        if (!PackedBoard.fits(puzzle.width()) || !puzzle.isPermutation()) {
+            misses++;
+            return null;
+        }
+        long state = puzzle.pack();
+        long mirrored = transpose(state, puzzle.width());
+        boolean flip = mirrored < state;
+        byte[] packedMoves = entries.get(flip ? mirrored : state);
+        if (packedMoves == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        if (flip)
+            mirroredHits++;
+        int[] moves = unpackMoves(packedMoves);
+        if (flip)
+            swapAxes(moves);
+        return moves;
+    }
+
+    /** Stores optimal moves from a board, and from every board along them with cachePaths */
+    synchronized void put(NumberPuzzle puzzle, int[] moves) {
+        int width = puzzle.width();
+        if (!PackedBoard.fits(width) || !puzzle.isPermutation())
+            return;
+        PackedBoard packed = PackedBoard.forWidth(width);
+        long state = puzzle.pack();
+        int blank = packed.findBlank(state);
+        int last = cachePaths ? moves.length : Math.min(1, moves.length);
+        for (int i = 0; i < last; i++) {
+            store(state, width, moves, i);
+            int to = packed.target[blank*PackedBoard.NUM_MOVES + moves[i]];
+            state = PackedBoard.slide(state, blank, to);
+            blank = to;
+        }
+        if (moves.length == 0)
+            store(state, width, moves, 0);
+    }
+
+    /** Caches moves[from..] as the solution of `state` */
+    private void store(long state, int width, int[] moves, int from) {
+        int[] suffix = java.util.Arrays.copyOfRange(moves, from, moves.length);
+        long mirrored = transpose(state, width);
+        if (mirrored < state) {
+            state = mirrored;
+            swapAxes(suffix);
+        }
+        entries.put(state, packMoves(suffix));
+        puts++;
+    }
+
+    /** Swaps UP with LEFT and DOWN with RIGHT, which is what transposing does to moves */
+    private static void swapAxes(int[] moves) {
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] ^= 1;
+        }
+    }
+
+    /** One length byte, then four 2-bit moves per byte */
+    private static byte[] packMoves(int[] moves) {
+        byte[] bytes = new byte[1 + (moves.length + 3) / 4];
+        bytes[0] = (byte) moves.length;
+        for (int i = 0; i < moves.length; i++) {
+            bytes[1 + i / 4] |= (byte) (moves[i] << (2 * (i % 4)));
+        }
+        return bytes;
+    }
+
+    private static int[] unpackMoves(byte[] bytes) {
+        int[] moves = new int[bytes[0] & 0xFF];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = (bytes[1 + i / 4] >>> (2 * (i % 4))) & 3;
+        }
+        return moves;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized double hitRate() {
+        long lookups = hits + misses;
+        return (lookups == 0) ? Double.NaN : (double) hits / lookups;
+    }
+
+    /** The counters as one JSON object */
+    synchronized String toJson() {
+        return String.format(Locale.ROOT,
+                "{\"size\":%d,\"capacity\":%d,\"hits\":%d,\"mirroredHits\":%d,\"misses\":%d,"
+                        + "\"puts\":%d,\"evictions\":%d}",
+                entries.size(), capacity, hits, mirroredHits, misses, puts, evictions);
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+
+/*---------------------- Files -----------------------*/
+
+    /**
+     * Writes every entry, least recently used first so a load keeps the same
+     * order, to a temporary file that then replaces `file`.
+     */
+    synchronized void save(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(entries.size());
+            for (Map.Entry<Long, byte[]> e : entries.entrySet()) {
+                out.writeLong(e.getKey());
+                out.writeByte(e.getValue().length);
+                out.write(e.getValue());
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** A cache holding a snapshot written by save, or an empty one if there is no file */
+    static SolutionCache load(Path file, int capacity, boolean cachePaths) throws IOException {
+        SolutionCache cache = new SolutionCache(capacity, cachePaths);
+        if (!Files.exists(file))
+            return cache;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException("Not a solution cache: " + file);
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long state = in.readLong();
+                byte[] moves = new byte[in.readUnsignedByte()];
+                in.readFully(moves);
+                cache.entries.put(state, moves);
+            }
+        } catch (EOFException e) {
+            throw new IOException("Truncated solution cache: " + file, e);
+        }
+        return cache;
+    }
+}
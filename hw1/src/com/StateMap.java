@@ -0,0 +1,127 @@
+package com;
+
+/**
+ * Open-addressing hash map from packed states (see PackedBoard) to values.
+ *
+ * Keys are primitive longs, so lookups never box. State 0 is not a legal board
+ * (every tile would be the blank), which lets it mark empty slots. Collisions are
+ * resolved by linear probing and removals shift the rest of the run back so no
+ * tombstones are left behind.
+ */
+final class StateMap<V> {
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+
+    StateMap() {
+        this(1 << 10);
+    }
+
+    StateMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(expected, 8) * 2 - 1) << 1;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    /** Spreads the nibbles of a state over the whole word before masking */
+    static long mix(long state) {
+        state ^= state >>> 33;
+        state *= 0xff51afd7ed558ccdL;
+        state ^= state >>> 33;
+        state *= 0xc4ceb9fe1a85ec53L;
+        return state ^ (state >>> 33);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean containsKey(long state) {
+        return keys[slot(state)] != EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(long state) {
+        return (V) values[slot(state)];
+    }
+
+    /** Associates a value with a state, returning the previous value if there was one */
+    @SuppressWarnings("unchecked")
+    V put(long state, V value) {
+        int i = slot(state);
+        V old = (V) values[i];
+        if (keys[i] == EMPTY) {
+            keys[i] = state;
+            if (++size * 2 > keys.length) {
+                values[i] = value;
+                grow();
+                return null;
+            }
+        }
+        values[i] = value;
+        return old;
+    }
+
+    @SuppressWarnings("unchecked")
+    V remove(long state) {
+        int i = slot(state);
+        if (keys[i] == EMPTY)
+            return null;
+        V old = (V) values[i];
+        // Shift later entries of the probe run back into the hole
+        int hole = i;
+        int j = (i + 1) & mask;
+        while (keys[j] != EMPTY) {
+            int home = (int) mix(keys[j]) & mask;
+            // Move j into the hole unless its home lies cyclically in (hole, j]
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+            j = (j + 1) & mask;
+        }
+        keys[hole] = EMPTY;
+        values[hole] = null;
+        size--;
+        return old;
+    }
+
+    void clear() {
+        java.util.Arrays.fill(keys, EMPTY);
+        java.util.Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /** Slot holding the state, or the empty slot where it would go */
+    private int slot(long state) {
+        int i = (int) mix(state) & mask;
+        while (keys[i] != EMPTY && keys[i] != state) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new Object[oldKeys.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int j = slot(oldKeys[i]);
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com;
+
+import java.util.Arrays;
+
+/**
+ * Set of packed states for searches that only need to know whether a state was
+ * seen.
+ *
+ * Where every permutation of the board fits in MAX_DENSE_BITS, the set is one
+ * bit per PermutationRank: no keys, no probing, and 45 KB covers every 3x3
+ * board. Wider boards have far too many permutations for that (16! bits is
+ * 2.6 TB), so they fall back to a ClosedList holding only keys.
+ *
+ * So the dense form only ever applies to 3x3, and its one user is the per-pass
+ * closed set of AnytimeSearch. The other searches keep a g and a move for every
+ * closed state, which a bitset cannot hold, and on 3x3 the DistanceTable answers
+ * before any search runs when DISTANCE_TABLE is set.
+ */
+final class VisitedSet {
+    static final long MAX_DENSE_BITS = 1L << 26;
+
+    private final int cells;
+    private final long[] bits;
+    private final int expected;
+    private ClosedList hashed;
+    private int size;
+
+    VisitedSet(int width, int expected) {
+        this.cells = width * width;
+        long count = PermutationRank.count(cells);
+        this.bits = (count <= MAX_DENSE_BITS) ? new long[(int) ((count + 63) >>> 6)] : null;
+        this.expected = expected;
+        if (bits == null)
+            hashed = new ClosedList(expected);
+    }
+
+    boolean contains(long state) {
+        if (bits == null)
+            return hashed.containsKey(state);
+        long rank = PermutationRank.rank(state, cells);
+        return (bits[(int) (rank >>> 6)] & (1L << rank)) != 0;
+    }
+
+    void add(long state) {
+        if (bits == null) {
+            hashed.put(state, 0, 0);
+            return;
+        }
+        long rank = PermutationRank.rank(state, cells);
+        long bit = 1L << rank;
+        int word = (int) (rank >>> 6);
+        if ((bits[word] & bit) == 0) {
+            bits[word] |= bit;
+            size++;
+        }
+    }
+
+    int size() {
+        return (bits == null) ? hashed.size() : size;
+    }
+
+    /** Empties the set; the hashed form starts over at `atLeast` or the size it was created with */
+    void clear(int atLeast) {
+        if (bits == null) {
+            hashed = new ClosedList(Math.max(expected, atLeast));
+            return;
+        }
+        Arrays.fill(bits, 0);
+        size = 0;
+    }
+}
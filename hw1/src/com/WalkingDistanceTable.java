@@ -0,0 +1,108 @@
+package com;
+
+import java.util.ArrayDeque;
+
+/**
+ * Walking distance table (Takahashi).
+ *
+ * Looking only at rows, a board reduces to a width x width matrix counting, for
+ * each row, how many tiles whose goal is each row sit in it, plus the blank's
+ * row. A vertical move carries one tile from a neighbouring row into the blank's
+ * row. The fewest such moves to reach the goal matrix is a lower bound on the
+ * vertical moves any solution makes, and the same table read with columns
+ * bounds the horizontal ones, so the two add up to an admissible estimate that
+ * dominates Manhattan distance.
+ *
+ * A matrix key packs the blank's line into the low bits and then one 3-bit count
+ * per (line, goal line), so boards up to 4x4 fit in a long. Tables are built by
+ * a breadth-first search from the goal on first use and shared read-only.
+ */
+final class WalkingDistanceTable {
+    private static final int BITS = 3;
+    private static final long COUNT_MASK = (1L << BITS) - 1;
+    private static final WalkingDistanceTable[] BY_WIDTH = new WalkingDistanceTable[PackedBoard.MAX_WIDTH + 1];
+
+    private final int width;
+    private final StateMap<Integer> distance;
+
+    private WalkingDistanceTable(int width) {
+        this.width = width;
+        this.distance = new StateMap<>();
+        build();
+    }
+
+    static synchronized WalkingDistanceTable forWidth(int width) {
+        if (!PackedBoard.fits(width))
+            throw new IllegalArgumentException("No walking distance table for width " + width);
+        if (BY_WIDTH[width] == null)
+            BY_WIDTH[width] = new WalkingDistanceTable(width);
+        return BY_WIDTH[width];
+    }
+
+    /** Number of distinct matrices, i.e. the table size */
+    int size() {
+        return distance.size();
+    }
+
+    /** Shift of the count for tiles in `line` whose goal is `goalLine` */
+    private int shift(int line, int goalLine) {
+        return BITS * (1 + line*width + goalLine);
+    }
+
+    /** Key of a board's row matrix (rows true) or column matrix (rows false) */
+    long key(int[] board, boolean rows) {
+        long key = 0;
+        for (int cell = 0; cell < board.length; cell++) {
+            int line = rows ? cell / width : cell % width;
+            int tile = board[cell];
+            if (tile == NumberPuzzle.BLANK) {
+                key |= line;
+            } else {
+                int goalLine = rows ? (tile - 1) / width : (tile - 1) % width;
+                key += 1L << shift(line, goalLine);
+            }
+        }
+        return key;
+    }
+
+    /** Key after a tile whose goal line is `goalLine` moves from `line` into the blank's line */
+    long move(long key, int goalLine, int line) {
+        int blankLine = (int) (key & COUNT_MASK);
+        key -= 1L << shift(line, goalLine);
+        key += 1L << shift(blankLine, goalLine);
+        return (key & ~COUNT_MASK) | line;
+    }
+
+    int distance(long key) {
+        return distance.get(key);
+    }
+
+    private void build() {
+        long goal = width - 1;
+        for (int line = 0; line < width; line++) {
+            int count = (line == width - 1) ? width - 1 : width;
+            goal += (long) count << shift(line, line);
+        }
+        distance.put(goal, 0);
+        ArrayDeque<Long> queue = new ArrayDeque<>();
+        queue.add(goal);
+        while (!queue.isEmpty()) {
+            long key = queue.poll();
+            int d = distance.get(key);
+            int blankLine = (int) (key & COUNT_MASK);
+            for (int line = blankLine - 1; line <= blankLine + 1; line += 2) {
+                if (line < 0 || line >= width)
+                    continue;
+                for (int goalLine = 0; goalLine < width; goalLine++) {
+                    if (((key >>> shift(line, goalLine)) & COUNT_MASK) == 0)
+                        continue;
+                    long next = move(key, goalLine, line);
+                    if (!distance.containsKey(next)) {
+                        distance.put(next, d + 1);
+                        queue.add(next);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package provided;
 
 import java.util.*;
+import java.util.function.ToIntFunction;
 import java.util.stream.IntStream;
 
 import static provided.NumberPuzzle.BLANK;
@@ -31,6 +32,20 @@ public class NumberPuzzle {
     tiles = new int[PUZZLE_WIDTH][PUZZLE_WIDTH];
   }
 
+  // Board from [row][column] tiles with BLANK for the blank, e.g. for benchmarks
+  NumberPuzzle(int[][] tiles) {
+    this();
+    for (int i = 0; i < PUZZLE_WIDTH; i++) {
+      for (int j = 0; j < PUZZLE_WIDTH; j++) {
+        this.tiles[i][j] = tiles[i][j];
+        if (tiles[i][j] == BLANK) {
+          blank_r = i;
+          blank_c = j;
+        }
+      }
+    }
+  }
+
   static NumberPuzzle readPuzzle() {
     NumberPuzzle newPuzzle = new NumberPuzzle();
 
@@ -370,7 +385,7 @@ class HammingDistance implements Comparator<Node> {
         if (val == 0) {
           continue;
         }
-        if (val != (i * PUZZLE_WIDTH + j)) {
+        if (val != (i * PUZZLE_WIDTH + j + 1)) {
           hdTotal += 1;
         }
       }
@@ -528,10 +543,86 @@ class SolutionPath {
   }
 }
 
+class BucketQueue {
+  private final ToIntFunction<Node> heuristic;
+  private Node[][][] buckets = new Node[128][][];
+  private int[][] sizes = new int[128][];
+  private int[] counts = new int[128];
+  private int[] minH = new int[128];   // lowest h that may be non-empty, per f
+  private int minF = 0;
+  private int size = 0;
+
+  // Frontier bucketed by f = cost + h, then by h so that the higher cost
+  // comes out first within an f (the comparators' tie break); equal keys are LIFO.
+  // Each f keeps a cursor at its lowest possibly non-empty h, so a pop does not
+  // rescan the empty low-h buckets every time
+  BucketQueue(ToIntFunction<Node> heuristic) {
+    this.heuristic = heuristic;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public void add(Node n) {
+    int h = heuristic.applyAsInt(n);
+    int f = n.getCost() + h;
+    if (f >= buckets.length) {
+      int length = Math.max(f + 1, buckets.length * 2);
+      buckets = Arrays.copyOf(buckets, length);
+      sizes = Arrays.copyOf(sizes, length);
+      counts = Arrays.copyOf(counts, length);
+      minH = Arrays.copyOf(minH, length);
+    }
+    if (buckets[f] == null) {
+      buckets[f] = new Node[f + 1][];
+      sizes[f] = new int[f + 1];
+      minH[f] = f;
+    }
+    if (buckets[f][h] == null) {
+      buckets[f][h] = new Node[16];
+    } else if (sizes[f][h] == buckets[f][h].length) {
+      buckets[f][h] = Arrays.copyOf(buckets[f][h], sizes[f][h] * 2);
+    }
+    buckets[f][h][sizes[f][h]++] = n;
+    counts[f]++;
+    if (h < minH[f]) {
+      minH[f] = h;
+    }
+    if (f < minF || size == 0) {
+      minF = f;
+    }
+    size++;
+  }
+
+  public Node poll() {
+    if (size == 0) {
+      return null;
+    }
+    while (counts[minF] == 0) {
+      minF++;
+    }
+    int h = minH[minF];
+    while (sizes[minF][h] == 0) {
+      h++;
+    }
+    minH[minF] = h;
+    Node n = buckets[minF][h][--sizes[minF][h]];
+    buckets[minF][h][sizes[minF][h]] = null;
+    counts[minF]--;
+    size--;
+    return n;
+  }
+}
+
 class AStar {
   private Set<State> visited;
   private Set<Node> frontierPoints;
-  private Queue<Node> frontier;
+  private BucketQueue frontier;
   private State endState;
 
   public SolutionPath getSolutionPath(State beginning, State end, boolean heuristicFunction) {
@@ -548,9 +639,9 @@ class AStar {
   public void init(State beginning, State end, boolean h) {
     this.visited = new HashSet<>();
     if (h) {
-      this.frontier = new PriorityQueue<>(100000, new ManhattanDistance());
+      this.frontier = new BucketQueue(new ManhattanDistance()::h);
     } else {
-      this.frontier = new PriorityQueue<>(100000, new HammingDistance());
+      this.frontier = new BucketQueue(new HammingDistance()::h);
     }
     this.frontierPoints = new HashSet<>();
     this.endState = end;
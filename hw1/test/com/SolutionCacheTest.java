@@ -0,0 +1,58 @@
+package com;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Scanner;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SolutionCacheTest {
+    private SolutionCache cache;
+
+    @BeforeEach
+    void installCache() {
+        cache = new SolutionCache(1024, true);
+        NumberPuzzle.CACHE = cache;
+    }
+
+    @AfterEach
+    void removeCache() {
+        NumberPuzzle.CACHE = null;
+    }
+
+    private static NumberPuzzle board(String rows) {
+        return NumberPuzzle.readPuzzle(new Scanner(rows));
+    }
+
+    @Test
+    void tileOutOfRangeIsUnsolvable() {
+        Solution solution = board("1 2 3\n4 5 6\n7 9 0").solution(NumberPuzzle.Search.ASTAR, false);
+        assertFalse(solution.solved());
+        assertEquals("unsolvable", solution.stats.status);
+    }
+
+    @Test
+    void overflowingTileDoesNotAliasCachedBoard() {
+        NumberPuzzle goal = board("1 2 3 4\n5 6 7 8\n9 10 11 12\n13 14 15 -");
+        assertEquals(0, goal.solution(NumberPuzzle.Search.ASTAR, false).length());
+        // 22 spills a bit into the next nibble, turning its 6 into the goal's 7
+        NumberPuzzle alias = board("1 2 3 4\n5 22 6 8\n9 10 11 12\n13 14 15 -");
+        assertEquals(goal.pack(), alias.pack());
+
+        assertNull(cache.get(alias));
+        Solution solution = alias.solution(NumberPuzzle.Search.ASTAR, false);
+        assertFalse(solution.solved());
+        assertEquals("unsolvable", solution.stats.status);
+    }
+
+    @Test
+    void invalidBoardIsNotStored() {
+        int size = cache.size();
+        cache.put(board("1 2 3\n4 5 6\n7 9 0"), new int[0]);
+        assertEquals(size, cache.size());
+    }
+}
@@ -0,0 +1,82 @@
+package com;
+
+/**
+ * Othello positions as a pair of 64-bit masks, one per colour.
+ *
+ * Square (row, col) is bit row*8 + col, so a scan of the set bits from the lowest
+ * up visits squares in the same row-major order as OthelloSolver's int[][] loops.
+ * Moving one square in a direction is a shift of the whole mask; shifts that
+ * change the column are masked so nothing wraps from one edge of the board to the
+ * other. Every direction is handled for all 64 squares at once, which is what
+ * makes move generation a handful of shifts instead of a scan per empty square.
+ */
+final class Bitboard {
+	static final long A_FILE = 0x0101010101010101L;
+	static final long H_FILE = 0x8080808080808080L;
+	/** d4 and e5 white, e4 and d5 black */
+	static final long START_WHITE = (1L << 27) | (1L << 36);
+	static final long START_BLACK = (1L << 28) | (1L << 35);
+
+	// The 8 directions: positive shifts move towards higher squares, negative ones
+	// towards lower squares; MASKS drops whatever wrapped around a side edge
+	private static final int[] SHIFTS = {1, 9, 8, 7, -1, -9, -8, -7};
+	private static final long[] MASKS = {~A_FILE, ~A_FILE, -1L, ~H_FILE, ~H_FILE, ~H_FILE, -1L, ~A_FILE};
+
+	private Bitboard() {
+	}
+
+	static long square(int row, int col) {
+		return 1L << (row * OthelloSolver.NUM_COLUMNS + col);
+	}
+
+	private static long shift(long b, int dir) {
+		int s = SHIFTS[dir];
+		return ((s > 0) ? b << s : b >>> -s) & MASKS[dir];
+	}
+
+	/** Every empty square where the player owning `own` captures at least one disc */
+	static long legalMoves(long own, long opp) {
+		long empty = ~(own | opp);
+		long moves = 0;
+		for (int dir = 0; dir < SHIFTS.length; dir++) {
+			// Runs of opponent discs adjacent to one of ours; at most 6 fit between two squares
+			long run = shift(own, dir) & opp;
+			run |= shift(run, dir) & opp;
+			run |= shift(run, dir) & opp;
+			run |= shift(run, dir) & opp;
+			run |= shift(run, dir) & opp;
+			run |= shift(run, dir) & opp;
+			moves |= shift(run, dir) & empty;
+		}
+		return moves;
+	}
+
+	/** Opponent discs flipped by playing the single-bit `move` */
+	static long flips(long own, long opp, long move) {
+		long flipped = 0;
+		for (int dir = 0; dir < SHIFTS.length; dir++) {
+			long run = 0;
+			long next = shift(move, dir);
+			while ((next & opp) != 0) {
+				run |= next;
+				next = shift(next, dir);
+			}
+			// The run only flips if it ends on one of our discs
+			if ((next & own) != 0)
+				flipped |= run;
+		}
+		return flipped;
+	}
+
+	/** The squares holding `color` on an int[][] board */
+	static long fromBoard(int[][] board, int color) {
+		long mask = 0;
+		for (int row = 0; row < OthelloSolver.NUM_COLUMNS; row++) {
+			for (int col = 0; col < OthelloSolver.NUM_COLUMNS; col++) {
+				if (board[row][col] == color)
+					mask |= square(row, col);
+			}
+		}
+		return mask;
+	}
+}
@@ -0,0 +1,65 @@
+package com;
+
+/**
+ * Parallel iterative deepening by Lazy SMP: every thread runs its own Searcher
+ * on the same root, and the only thing they share is the transposition table.
+ *
+ * Threads do not split the tree between them. They run into each other's table
+ * entries instead, which cut off or reorder whatever another thread has already
+ * searched, so together they finish each depth sooner than one thread alone.
+ * Every other helper starts one ply deeper than the main thread, which keeps the
+ * threads from walking the tree in lockstep. The main thread runs in the caller;
+ * once it returns, the helpers are stopped, and the move comes from whichever
+ * thread completed the deepest iteration, the main thread on a tie.
+ */
+final class LazySmp {
+	private final TranspositionTable table;
+	private final Searcher.Mode mode;
+	private final int threads;
+
+	LazySmp(TranspositionTable table, Searcher.Mode mode, int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("Need at least one thread, got " + threads);
+		this.table = table;
+		this.mode = mode;
+		this.threads = threads;
+	}
+
+	/** As Searcher.iterate, on all threads; nodes in the result add up every thread's */
+	Searcher.Result search(Position root, boolean whiteTurn, long millis, int maxDepth) {
+		Searcher[] searchers = new Searcher[threads];
+		Searcher.Result[] results = new Searcher.Result[threads];
+		Thread[] helpers = new Thread[threads - 1];
+		for (int i = 0; i < threads; i++) {
+			searchers[i] = new Searcher(table, mode);
+		}
+		for (int i = 1; i < threads; i++) {
+			final int id = i;
+			helpers[i - 1] = new Thread(() -> results[id] = searchers[id].iterate(root, whiteTurn, millis, maxDepth,
+					1 + id % 2), "smp-" + i);
+			helpers[i - 1].start();
+		}
+		results[0] = searchers[0].iterate(root, whiteTurn, millis, maxDepth);
+		for (int i = 1; i < threads; i++) {
+			searchers[i].stop();
+		}
+		for (Thread t : helpers) {
+			try {
+				t.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		Searcher.Result best = results[0];
+		long nodes = 0;
+		for (Searcher.Result r : results) {
+			if (r == null)
+				continue;
+			nodes += r.nodes;
+			if (r.depth > best.depth)
+				best = r;
+		}
+		return new Searcher.Result(best.move, best.value, best.depth, nodes);
+	}
+}
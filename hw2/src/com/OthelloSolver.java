@@ -24,7 +24,22 @@ public class OthelloSolver {
 	// int MINIMAX_SEARCH_DEPTH = 11;
 
 	static final boolean WHITE_TO_PLAY = true;
-	static final int DEMO_SEARCH_DEPTH = 5;
+	// Thinking time per move of the interactive player; it searches as deep as this allows
+	static final long DEMO_MOVE_MILLIS = 1000;
+	// Search used by bestMove: plain alpha-beta or principal variation search (see Searcher)
+	static Searcher.Mode SEARCH_MODE = Searcher.Mode.PVS;
+	// Threads bestMove searches with (Lazy SMP, see LazySmp)
+	static int THREADS = Runtime.getRuntime().availableProcessors();
+
+	// Transposition tables of 2^TT_BITS entries (16 bytes each). TABLE is shared by every
+	// bestMove search, where an entry from an earlier, deeper search can answer a later
+	// one. minimax_value keeps to FIXED_DEPTH_TABLE and only takes entries of exactly the
+	// depth it needs, so it returns the same value whatever was searched before.
+	// Nodes with fewer than TT_MIN_DEPTH plies left are cheaper to search than to look up.
+	static final int TT_BITS = 20;
+	static final TranspositionTable TABLE = new TranspositionTable(TT_BITS);
+	static final TranspositionTable FIXED_DEPTH_TABLE = new TranspositionTable(TT_BITS);
+	static final int TT_MIN_DEPTH = 2;
 
 	// Rather than having you implement a full Othello player, which is hard to fit into the
 	// HackerRank paradigm, we're going to just evaluate board positions according to the evaluation
@@ -46,6 +61,13 @@ public class OthelloSolver {
 			play();
 			System.exit(0);
 		}
+		// "bench [depth [threads]]"; threads defaults to THREADS
+		if (args.length > 0 && args[0].equals("bench")) {
+			if (args.length > 2)
+				THREADS = Integer.parseInt(args[2]);
+			bench((args.length > 1) ? Integer.parseInt(args[1]) : 8);
+			System.exit(0);
+		}
 		try {
 			File myFile = new File("/home/piraka9011/IdeaProjects/CS4100/hw2/src/com/test.txt");
 			Scanner myScanner = new Scanner(myFile);
@@ -134,79 +156,27 @@ public class OthelloSolver {
 
 	static ArrayList<Move> generateLegalMoves(int[][] board, boolean whiteTurn) {
 	  ArrayList<Move> legalMoves = new ArrayList<Move>();
-	  for (int row = 0; row < NUM_COLUMNS; row++) {
-		for (int col = 0; col < NUM_COLUMNS; col++) {
-		  if (board[row][col] != NOBODY) {
-			continue;  // can't play in occupied space
-		  }
-		  // Starting from the upper left ...short-circuit eval makes this not terrible
-		  if (capturesInDir(board,row,-1,col,-1, whiteTurn) ||
-			  capturesInDir(board,row,-1,col,0,whiteTurn) ||    // up
-			  capturesInDir(board,row,-1,col,+1,whiteTurn) ||   // up-right
-			  capturesInDir(board,row,0,col,+1,whiteTurn) ||    // right
-			  capturesInDir(board,row,+1,col,+1,whiteTurn) ||   // down-right
-			  capturesInDir(board,row,+1,col,0,whiteTurn) ||    // down
-			  capturesInDir(board,row,+1,col,-1,whiteTurn) ||   // down-left
-			  capturesInDir(board,row,0,col,-1,whiteTurn)) {    // left
-				legalMoves.add(new Move(row,col));
-		  }
-		}
+	  long white = Bitboard.fromBoard(board, WHITE);
+	  long black = Bitboard.fromBoard(board, BLACK);
+	  long moves = whiteTurn ? Bitboard.legalMoves(white, black) : Bitboard.legalMoves(black, white);
+	  // Lowest bit first, so moves come out in row-major order
+	  for (; moves != 0; moves &= moves - 1) {
+		int square = Long.numberOfTrailingZeros(moves);
+		legalMoves.add(new Move(square / NUM_COLUMNS, square % NUM_COLUMNS));
 	  }
 	  return legalMoves;
 	}
 
-	// row_delta and col_delta are the direction of movement of the scan for capture
-	static boolean capturesInDir(int[][] board, int row, int row_delta, int col, int col_delta, boolean whiteTurn) {
-	  // Nothing to capture if we're headed off the board
-	  if ((row+row_delta < 0) || (row + row_delta >= NUM_COLUMNS)) {
-		return false;
-	  }
-	  if ((col+col_delta < 0) || (col + col_delta >= NUM_COLUMNS)) {
-		return false;
-	  }
-	  // Nothing to capture if the neighbor in the right direction isn't of the opposite color
-	  int enemyColor = (whiteTurn ? BLACK : WHITE);
-	  if (board[row+row_delta][col+col_delta] != enemyColor) {
-		return false;
-	  }
-	  // Scan for a friendly piece that could capture -- hitting end of the board
-	  // or an empty space results in no capture
-	  int friendlyColor = (whiteTurn ? WHITE : BLACK);
-	  int scanRow = row + 2*row_delta;
-	  int scanCol = col + 2*col_delta;
-	  while ((scanRow >= 0) && (scanRow < NUM_COLUMNS) &&
-			  (scanCol >= 0) && (scanCol < NUM_COLUMNS) && (board[scanRow][scanCol] != NOBODY)) {
-		  if (board[scanRow][scanCol] == friendlyColor) {
-			  return true;
-		  }
-		  scanRow += row_delta;
-		  scanCol += col_delta;
-	  }
-	  return false;
-	}
-
 	// won't return the board to make clear it's not a copy
 	static void capture(int[][] board, int row, int col, boolean whiteTurn) {
-	  for (int row_delta = -1; row_delta <= 1; row_delta++) {
-		for (int col_delta = -1; col_delta <= 1; col_delta++) {
-		  if ((row_delta == 0) && (col_delta == 0)) {
-			// the only combination that isn't a real direction
-			continue;
-		  }
-		  if (capturesInDir(board, row, row_delta, col, col_delta, whiteTurn)) {
-			// All our logic for this being valid just happened -- start flipping
-			int flipRow = row + row_delta;
-			int flipCol = col + col_delta;
-			int enemyColor = (whiteTurn ? BLACK : WHITE);
-			// No need to check for board bounds - capturesInDir tells us there's a friendly piece
-			while(board[flipRow][flipCol] == enemyColor) {
-			  // Take advantage of enum values and flip the owner
-			  board[flipRow][flipCol] = -board[flipRow][flipCol];
-			  flipRow += row_delta;
-			  flipCol += col_delta;
-			}
-		  }
-		}
+	  long white = Bitboard.fromBoard(board, WHITE);
+	  long black = Bitboard.fromBoard(board, BLACK);
+	  long move = Bitboard.square(row, col);
+	  long flipped = whiteTurn ? Bitboard.flips(white, black, move) : Bitboard.flips(black, white, move);
+	  for (; flipped != 0; flipped &= flipped - 1) {
+		int square = Long.numberOfTrailingZeros(flipped);
+		// Take advantage of enum values and flip the owner
+		board[square / NUM_COLUMNS][square % NUM_COLUMNS] = -board[square / NUM_COLUMNS][square % NUM_COLUMNS];
 	  }
 	}
 
@@ -261,50 +231,102 @@ public class OthelloSolver {
 	//-------
 
 	static float minimax_value(int board[][], boolean whiteTurn, int searchDepth, float alpha, float beta) {
-		// Setup
-		ArrayList<Move> validMoves;
-		float v;
-
-		// Evaluate the score if we reach the search depth or game is over
-		if (searchDepth == 0 || (checkGameOver(board) != NOBODY))
-			return evaluationFunction(board);
+		FIXED_DEPTH_TABLE.newSearch();
+		return new Searcher(FIXED_DEPTH_TABLE).minimax_value(Position.fromBoard(board), whiteTurn, searchDepth, alpha, beta);
+	}
 
-		// Get list of valid moves
-		validMoves = generateLegalMoves(board, whiteTurn);
+	// Best move within a time budget, by iterative deepening on THREADS threads
+	// (see Searcher.iterate and LazySmp); null only if the side to move has to pass
+	static Move bestMove(int[][] board, boolean whiteTurn, long millis) {
+		TABLE.newSearch();
+		Searcher.Result result = new LazySmp(TABLE, SEARCH_MODE, THREADS).search(Position.fromBoard(board), whiteTurn,
+				millis, Searcher.MAX_PLY);
+		if (result.move == TranspositionTable.NO_MOVE)
+			return null;
+		return new Move(result.move / NUM_COLUMNS, result.move % NUM_COLUMNS);
+	}
+	
+	// Searches the same positions to a fixed depth in every Searcher.Mode, each with a
+	// fresh table, and reports nodes and time per mode. Then reports how Lazy SMP
+	// in SEARCH_MODE scales from 1 thread up to THREADS: time to complete the depth
+	// and nodes per second, each against one thread. Positions come from random
+	// games with a fixed seed, so runs are comparable.
+	static void bench(int depth) {
+		final int positions = 20;
+		Random rng = new Random(4100);
+		Position[] start = new Position[positions];
+		for (int i = 0; i < positions; i++) {
+			start[i] = randomPosition(rng, 16 + rng.nextInt(20));
+		}
+		benchModes(start, depth);
+		benchThreads(start, depth);
+	}
 
-		// If no moves, skip to next person
-		if (validMoves.isEmpty())
-			return minimax_value(board, !whiteTurn, searchDepth, alpha, beta);
+	static void benchModes(Position[] start, int depth) {
+		for (Searcher.Mode mode : Searcher.Mode.values()) {
+			TABLE.clear();
+			Searcher searcher = new Searcher(TABLE, mode);
+			long nodes = 0;
+			float sum = 0;
+			long begin = System.nanoTime();
+			for (Position pos : start) {
+				TABLE.newSearch();
+				searcher.nodes = 0;
+				sum += searcher.value(new Position(pos.white, pos.black), true, depth);
+				nodes += searcher.nodes;
+			}
+			double seconds = (System.nanoTime() - begin) / 1e9;
+			System.out.printf("%-10s depth %d: %,d nodes in %.2f s (%,.0f nodes/s), value sum %.0f%n",
+					mode, depth, nodes, seconds, nodes / seconds, sum);
+		}
+	}
 
-		// Apply minimax with alpha-beta pruning
-		// Max-value
-		if (whiteTurn){
-			v = Float.NEGATIVE_INFINITY;
-			for (Move move: validMoves) {
-				int[][] currentBoard = play(board, move, whiteTurn);
-				v = Math.max(v, minimax_value(currentBoard, !whiteTurn, searchDepth-1, alpha, beta));
-				if (v >= beta)
-					return v;
-				// Prune
-				alpha = Math.max(v, alpha);
+	static void benchThreads(Position[] start, int depth) {
+		double baseSeconds = 0, baseRate = 0;
+		for (int threads = 1; ; threads = Math.min(threads * 2, THREADS)) {
+			TABLE.clear();
+			LazySmp smp = new LazySmp(TABLE, SEARCH_MODE, threads);
+			long nodes = 0;
+			long begin = System.nanoTime();
+			for (Position pos : start) {
+				TABLE.newSearch();
+				nodes += smp.search(pos, true, Searcher.NO_TIME_LIMIT, depth).nodes;
+			}
+			double seconds = (System.nanoTime() - begin) / 1e9;
+			double rate = nodes / seconds;
+			if (threads == 1) {
+				baseSeconds = seconds;
+				baseRate = rate;
 			}
-			return v;
+			System.out.printf("%2d threads, depth %d: %.2f s to depth (%.2fx), %,.0f nodes/s (%.2fx)%n",
+					threads, depth, seconds, baseSeconds / seconds, rate, rate / baseRate);
+			if (threads >= THREADS)
+				break;
 		}
-		// Min-value
-		else {
-			v = Float.POSITIVE_INFINITY;
-			for (Move move: validMoves) {
-				int[][] currentBoard = play(board, move, whiteTurn);
-				v = Math.min(v, minimax_value(currentBoard, !whiteTurn, searchDepth-1, alpha, beta));
-				if (v <= alpha)
-					return v;
-				// Prune
-				beta = Math.min(v, beta);
+	}
+
+	// Position after `moves` random moves from the start, white to move unless the game ended
+	static Position randomPosition(Random rng, int moves) {
+		Position pos = new Position(Bitboard.START_WHITE, Bitboard.START_BLACK);
+		// Black moves first
+		boolean whiteTurn = false;
+		for (int i = 0; i < moves || !whiteTurn; i++) {
+			long legal = pos.legalMoves(whiteTurn);
+			if (legal == 0) {
+				if (pos.legalMoves(!whiteTurn) == 0)
+					break;
+				whiteTurn = !whiteTurn;
+				continue;
 			}
-			return v;
+			for (int skip = rng.nextInt(Long.bitCount(legal)); skip > 0; skip--) {
+				legal &= legal - 1;
+			}
+			pos.play(legal & -legal, whiteTurn);
+			whiteTurn = !whiteTurn;
 		}
+		return new Position(pos.white, pos.black);
 	}
-	
+
     // Handy for debugging!  And used by the interactive player below.
 	static void printBoard(int[][] board) {
 		for (int r = 0; r < NUM_COLUMNS; r++) {
@@ -335,17 +357,7 @@ public class OthelloSolver {
 			ArrayList<Move> legalMoves = generateLegalMoves(board, true);
 			if (legalMoves.size() > 0) {
 				System.out.println("Thinking...");
-				float bestVal = Float.NEGATIVE_INFINITY;
-				Move bestMove = null;
-				for (Move m : legalMoves) {
-					int[][] newBoard = play(board, m, true);
-					float moveVal = minimax_value(newBoard, true, DEMO_SEARCH_DEPTH,
-												Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY);
-					if (moveVal > bestVal) {
-						bestMove = m;
-						bestVal = moveVal;
-					}
-				}
+				Move bestMove = bestMove(board, true, DEMO_MOVE_MILLIS);
 				board = play(board, bestMove, true);
 				printBoard(board);
 				System.out.println();
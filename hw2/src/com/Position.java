@@ -0,0 +1,105 @@
+package com;
+
+/**
+ * A mutable Othello position on bitboards (see Bitboard) that the search plays
+ * moves on and takes them back from, so no node allocates a board.
+ *
+ * play returns the discs it flipped; that mask is all undo needs to put the
+ * position back, so the caller keeps it as a local and the recursion itself is
+ * the undo stack.
+ *
+ * The Zobrist hash of the discs is kept up to date by play: the XOR of one
+ * random key per (colour, square) that is occupied. A flipped disc changes
+ * colour, so it XORs out one key and in the other. undo just restores the hash
+ * play saved.
+ */
+final class Position {
+	private static final long[] WHITE_KEYS = new long[64];
+	private static final long[] BLACK_KEYS = new long[64];
+	// Flipping a disc on a square XORs both of its keys
+	private static final long[] FLIP_KEYS = new long[64];
+	private static final long WHITE_TO_MOVE;
+
+	static {
+		// Fixed seed, so hashes are the same from run to run
+		java.util.SplittableRandom rng = new java.util.SplittableRandom(0x07E110L);
+		for (int square = 0; square < 64; square++) {
+			WHITE_KEYS[square] = rng.nextLong();
+			BLACK_KEYS[square] = rng.nextLong();
+			FLIP_KEYS[square] = WHITE_KEYS[square] ^ BLACK_KEYS[square];
+		}
+		WHITE_TO_MOVE = rng.nextLong();
+	}
+
+	long white;
+	long black;
+	private long hash;
+	// Hash before each play() that has not been undone; a game has at most 60 moves
+	private final long[] hashes = new long[64];
+	private int ply;
+
+	Position(long white, long black) {
+		this.white = white;
+		this.black = black;
+		for (long b = white; b != 0; b &= b - 1) {
+			hash ^= WHITE_KEYS[Long.numberOfTrailingZeros(b)];
+		}
+		for (long b = black; b != 0; b &= b - 1) {
+			hash ^= BLACK_KEYS[Long.numberOfTrailingZeros(b)];
+		}
+	}
+
+	static Position fromBoard(int[][] board) {
+		return new Position(Bitboard.fromBoard(board, OthelloSolver.WHITE), Bitboard.fromBoard(board, OthelloSolver.BLACK));
+	}
+
+	/** Hash of the discs and the side to move */
+	long key(boolean whiteTurn) {
+		return whiteTurn ? hash ^ WHITE_TO_MOVE : hash;
+	}
+
+	long legalMoves(boolean whiteTurn) {
+		return whiteTurn ? Bitboard.legalMoves(white, black) : Bitboard.legalMoves(black, white);
+	}
+
+	/** Places the single-bit `move` for the side to play and returns the discs it flipped */
+	long play(long move, boolean whiteTurn) {
+		long flipped = whiteTurn ? Bitboard.flips(white, black, move) : Bitboard.flips(black, white, move);
+		hashes[ply++] = hash;
+		rehash(move, flipped, whiteTurn);
+		if (whiteTurn) {
+			white |= move | flipped;
+			black &= ~flipped;
+			return flipped;
+		}
+		black |= move | flipped;
+		white &= ~flipped;
+		return flipped;
+	}
+
+	/** Takes back a play() that returned `flipped` */
+	void undo(long move, long flipped, boolean whiteTurn) {
+		hash = hashes[--ply];
+		if (whiteTurn) {
+			white &= ~(move | flipped);
+			black |= flipped;
+		} else {
+			black &= ~(move | flipped);
+			white |= flipped;
+		}
+	}
+
+	/** Places the disc on `move` and flips `flipped` in the hash */
+	private void rehash(long move, long flipped, boolean whiteTurn) {
+		int square = Long.numberOfTrailingZeros(move);
+		hash ^= whiteTurn ? WHITE_KEYS[square] : BLACK_KEYS[square];
+		for (; flipped != 0; flipped &= flipped - 1) {
+			hash ^= FLIP_KEYS[Long.numberOfTrailingZeros(flipped)];
+		}
+	}
+
+	/** White discs minus black discs */
+	int discDifference() {
+		return Long.bitCount(white) - Long.bitCount(black);
+	}
+}
@@ -0,0 +1,468 @@
+package com;
+
+/**
+ * Alpha-beta search of Othello positions, with a fixed depth (minimax_value) or
+ * iterative deepening against the clock (iterate).
+ *
+ * Values are from white's side, as OthelloSolver.evaluationFunction gives them:
+ * white maximises, black minimises. Moves at a node are tried best guess first:
+ * the previous iteration's best move at the root and the transposition table's
+ * best move elsewhere, then the two killer moves of the ply (the
+ * last ones that caused a cutoff at this distance from the root), then by
+ * history score (how much searching a move has cut off before) plus a prior
+ * that puts corners early and X-squares, which hand a corner away, late.
+ *
+ * Mode.PVS searches the same tree as negamax principal variation search
+ * (NegaScout) on integer scores from the side to move: the first move of a node
+ * gets the full window, every later one only a null window that proves it is no
+ * better, and is searched again with the full window when it is. Iterative
+ * deepening then also starts each iteration with an aspiration window of
+ * ASPIRATION discs around the last score, widening the side it fails on.
+ * Table entries stay on white's side in both modes, so they can share one.
+ *
+ * iterate takes a table entry searched deeper than it needs as an answer, so a
+ * position is valued from the deepest search that has seen it. minimax_value and
+ * value only take entries searched exactly as deep, so a fixed-depth value stays
+ * the plain minimax value of that depth; the table they use must not be written
+ * by iterate, whose entries can hold deeper values at any depth.
+ *
+ * A searcher keeps killers and history between searches, so one is used by one
+ * thread at a time. The table can be shared.
+ */
+final class Searcher {
+	enum Mode { ALPHA_BETA, PVS }
+
+	static final int MAX_PLY = 128;
+	/** Outside every score, +-WIN_VAL included */
+	private static final int INFINITE_SCORE = 1000;
+	/** Half-width of the first aspiration window, in discs */
+	static final int ASPIRATION = 4;
+	/** iterate() budget that never runs out, for searches bounded by depth alone */
+	static final long NO_TIME_LIMIT = Long.MAX_VALUE;
+	/** Most moves an Othello position has ever been shown to have is 33 */
+	private static final int MAX_MOVES = 64;
+	private static final int CLOCK_INTERVAL = 1024;
+
+	private static final int HASH_MOVE_SCORE = 1 << 30;
+	private static final int KILLER_SCORE = 1 << 29;
+	private static final int PRIOR = 1 << 24;
+	/** History scores are halved before any reaches this, so they stay below the prior */
+	private static final int HISTORY_LIMIT = 1 << 22;
+	private static final long CORNERS = 0x8100000000000081L;
+	/** Diagonal neighbours of the corners: b2, g2, b7, g7 */
+	private static final long X_SQUARES = 0x0042000000004200L;
+
+	/** Unwinds a search that ran out of time; carries no stack trace */
+	private static final class Timeout extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		Timeout() {
+			super("search time exceeded", null, false, false);
+		}
+	}
+	private static final Timeout TIMEOUT = new Timeout();
+
+	/** Outcome of an iterative-deepening search */
+	static final class Result {
+		/** Square of the move to play, TranspositionTable.NO_MOVE if there is none */
+		final int move;
+		/** Value of the deepest completed iteration, from white's side */
+		final float value;
+		/** Deepest completed iteration */
+		final int depth;
+		final long nodes;
+
+		Result(int move, float value, int depth, long nodes) {
+			this.move = move;
+			this.value = value;
+			this.depth = depth;
+			this.nodes = nodes;
+		}
+	}
+
+	private final TranspositionTable table;
+	private final Mode mode;
+	private final int[][] killers = new int[MAX_PLY][2];
+	private final int[][] history = new int[2][64];
+	private final int[][] moveBuffer = new int[MAX_PLY][MAX_MOVES];
+	private final int[][] scoreBuffer = new int[MAX_PLY][MAX_MOVES];
+
+	private long deadline = Long.MAX_VALUE;
+	// Only table entries of exactly the depth searched may answer (minimax_value, value)
+	private boolean fixedDepth;
+	// Set from another thread to end the search as if time had run out
+	private volatile boolean stopped;
+	// Best root move of the previous iteration, tried first; and of this one so far,
+	// with whether its score is proven above the alpha of a window that has not failed low
+	private int pvMove = TranspositionTable.NO_MOVE;
+	private int rootMove;
+	private boolean rootProven;
+	long nodes;
+
+	Searcher(TranspositionTable table) {
+		this(table, Mode.ALPHA_BETA);
+	}
+
+	Searcher(TranspositionTable table, Mode mode) {
+		this.table = table;
+		this.mode = mode;
+		for (int[] k : killers) {
+			k[0] = k[1] = TranspositionTable.NO_MOVE;
+		}
+	}
+
+	/** Fixed-depth search of a position with no time limit */
+	float minimax_value(Position pos, boolean whiteTurn, int searchDepth, float alpha, float beta) {
+		fixedDepth = true;
+		deadline = Long.MAX_VALUE;
+		pvMove = TranspositionTable.NO_MOVE;
+		return search(pos, whiteTurn, searchDepth, 0, alpha, beta);
+	}
+
+	/** Exact value of a position searched to a fixed depth, from white's side, in this searcher's mode */
+	float value(Position pos, boolean whiteTurn, int searchDepth) {
+		fixedDepth = true;
+		deadline = Long.MAX_VALUE;
+		pvMove = TranspositionTable.NO_MOVE;
+		if (mode == Mode.PVS)
+			return (whiteTurn ? 1 : -1) * pvs(pos, whiteTurn, searchDepth, 0, -INFINITE_SCORE, INFINITE_SCORE);
+		return search(pos, whiteTurn, searchDepth, 0, Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Searches one ply deeper at a time until `millis` have passed or `maxDepth` is
+	 * done. The move returned is the deepest completed iteration's best, unless the
+	 * interrupted iteration after it had already proven a root move better than its
+	 * window's alpha; moves found while an aspiration window is failing low only
+	 * have upper bounds and are never taken. Before even depth 1 completes it is
+	 * simply the first move in order.
+	 */
+	Result iterate(Position root, boolean whiteTurn, long millis, int maxDepth) {
+		return iterate(root, whiteTurn, millis, maxDepth, 1);
+	}
+
+	/** As above, starting at `firstDepth`; Lazy SMP helpers start at different depths */
+	Result iterate(Position root, boolean whiteTurn, long millis, int maxDepth, int firstDepth) {
+		long start = System.nanoTime();
+		fixedDepth = false;
+		deadline = (millis >= NO_TIME_LIMIT / 1_000_000L) ? Long.MAX_VALUE : start + millis * 1_000_000L;
+		nodes = 0;
+		long moves = root.legalMoves(whiteTurn);
+		if (moves == 0)
+			return new Result(TranspositionTable.NO_MOVE, Float.NaN, 0, 0);
+		// Every move fills a square, so the game ends within this many plies
+		maxDepth = Math.min(maxDepth, Long.bitCount(~(root.white | root.black)));
+		int count = orderMoves(moves, TranspositionTable.NO_MOVE, 0, whiteTurn);
+		int best = moveBuffer[0][pickNext(0, 0, count)];
+		float value = Float.NaN;
+		int completed = 0;
+		for (int depth = Math.min(firstDepth, maxDepth); depth <= maxDepth; depth++) {
+			ageHistory();
+			pvMove = best;
+			rootMove = TranspositionTable.NO_MOVE;
+			rootProven = false;
+			try {
+				// A timeout can leave moves played on the copy, never on root
+				Position pos = new Position(root.white, root.black);
+				if (mode == Mode.PVS)
+					value = (whiteTurn ? 1 : -1) * aspirate(pos, whiteTurn, depth, value);
+				else
+					value = search(pos, whiteTurn, depth, 0, Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY);
+				completed = depth;
+				best = rootMove;
+			} catch (Timeout e) {
+				if (rootProven)
+					best = rootMove;
+				break;
+			}
+		}
+		deadline = Long.MAX_VALUE;
+		pvMove = TranspositionTable.NO_MOVE;
+		return new Result(best, value, completed, nodes);
+	}
+
+	/** Whether a table entry searched `entryDepth` plies deep can stand in for a search of `searchDepth` */
+	private boolean answers(int entryDepth, int searchDepth) {
+		return entryDepth == searchDepth || (entryDepth > searchDepth && !fixedDepth);
+	}
+
+	/** Makes a running or later iterate() stop at its next clock check */
+	void stop() {
+		stopped = true;
+	}
+
+	private float search(Position pos, boolean whiteTurn, int searchDepth, int ply, float alpha, float beta) {
+		if ((++nodes % CLOCK_INTERVAL) == 0 && (stopped || System.nanoTime() > deadline))
+			throw TIMEOUT;
+		long key = pos.key(whiteTurn);
+		int hashMove = TranspositionTable.NO_MOVE;
+		if (searchDepth >= OthelloSolver.TT_MIN_DEPTH) {
+			long entry = table.probe(key);
+			if (entry != TranspositionTable.MISS) {
+				// The root always searches, so it has a move to report
+				if (ply > 0 && answers(TranspositionTable.depth(entry), searchDepth)) {
+					float value = TranspositionTable.value(entry);
+					int bound = TranspositionTable.bound(entry);
+					if (bound == TranspositionTable.EXACT
+							|| (bound == TranspositionTable.LOWER && value >= beta)
+							|| (bound == TranspositionTable.UPPER && value <= alpha))
+						return value;
+				}
+				hashMove = TranspositionTable.move(entry);
+			}
+		}
+		if (ply == 0 && pvMove != TranspositionTable.NO_MOVE)
+			hashMove = pvMove;
+
+		long validMoves = pos.legalMoves(whiteTurn);
+		if (validMoves == 0) {
+			// Neither side can move: the game is over
+			if (pos.legalMoves(!whiteTurn) == 0)
+				return gameOverValue(pos);
+			if (searchDepth == 0)
+				return pos.discDifference();
+			// If no moves, skip to next person
+			return search(pos, !whiteTurn, searchDepth, ply + 1, alpha, beta);
+		}
+		// The side to move can move, so the game is not over: score the piece difference
+		if (searchDepth == 0)
+			return pos.discDifference();
+
+		// Apply minimax with alpha-beta pruning
+		float alphaIn = alpha, betaIn = beta;
+		float v = whiteTurn ? Float.NEGATIVE_INFINITY : Float.POSITIVE_INFINITY;
+		int bestMove = TranspositionTable.NO_MOVE;
+		int count = orderMoves(validMoves, hashMove, ply, whiteTurn);
+		boolean cutoff = false;
+		for (int i = 0; i < count && !cutoff; i++) {
+			int square = moveBuffer[ply][pickNext(ply, i, count)];
+			long move = 1L << square;
+			long flipped = pos.play(move, whiteTurn);
+			float child = search(pos, !whiteTurn, searchDepth-1, ply + 1, alpha, beta);
+			pos.undo(move, flipped, whiteTurn);
+			// Max-value
+			if (whiteTurn) {
+				if (child > v) {
+					v = child;
+					bestMove = square;
+				}
+				cutoff = v >= beta;
+				// Prune
+				alpha = Math.max(v, alpha);
+			}
+			// Min-value
+			else {
+				if (child < v) {
+					v = child;
+					bestMove = square;
+				}
+				cutoff = v <= alpha;
+				// Prune
+				beta = Math.min(v, beta);
+			}
+			// The root window is unbounded, so every improvement there is proven
+			if (ply == 0 && bestMove == square) {
+				rootMove = square;
+				rootProven = true;
+			}
+		}
+		if (cutoff)
+			rememberCutoff(bestMove, hashMove, searchDepth, ply, whiteTurn);
+		int bound = (v <= alphaIn) ? TranspositionTable.UPPER
+				: (v >= betaIn) ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+		if (searchDepth >= OthelloSolver.TT_MIN_DEPTH)
+			table.store(key, v, searchDepth, bound, bestMove);
+		return v;
+	}
+
+	/**
+	 * PVS at the root inside a window around the previous iteration's value (white's
+	 * side, NaN for none), widening whichever side the score falls outside of.
+	 */
+	private int aspirate(Position pos, boolean whiteTurn, int depth, float previous) {
+		if (Float.isNaN(previous))
+			return pvs(pos, whiteTurn, depth, 0, -INFINITE_SCORE, INFINITE_SCORE);
+		int guess = (whiteTurn ? 1 : -1) * (int) previous;
+		int delta = ASPIRATION;
+		int alpha = Math.max(-INFINITE_SCORE, guess - delta);
+		int beta = Math.min(INFINITE_SCORE, guess + delta);
+		while (true) {
+			int score = pvs(pos, whiteTurn, depth, 0, alpha, beta);
+			if (score <= alpha && alpha > -INFINITE_SCORE) {
+				// Every root score was only an upper bound, so no move is proven
+				rootMove = TranspositionTable.NO_MOVE;
+				rootProven = false;
+				delta *= 2;
+				alpha = Math.max(-INFINITE_SCORE, score - delta);
+			} else if (score >= beta && beta < INFINITE_SCORE) {
+				// The move that failed high stays proven, and is the one to try first again
+				pvMove = rootMove;
+				delta *= 2;
+				beta = Math.min(INFINITE_SCORE, score + delta);
+			} else {
+				return score;
+			}
+		}
+	}
+
+	/** Negamax principal variation search; scores are from the side to move */
+	private int pvs(Position pos, boolean whiteTurn, int searchDepth, int ply, int alpha, int beta) {
+		if ((++nodes % CLOCK_INTERVAL) == 0 && (stopped || System.nanoTime() > deadline))
+			throw TIMEOUT;
+		int sign = whiteTurn ? 1 : -1;
+		long key = pos.key(whiteTurn);
+		int hashMove = TranspositionTable.NO_MOVE;
+		if (searchDepth >= OthelloSolver.TT_MIN_DEPTH) {
+			long entry = table.probe(key);
+			if (entry != TranspositionTable.MISS) {
+				if (ply > 0 && answers(TranspositionTable.depth(entry), searchDepth)) {
+					// Stored from white's side
+					int value = sign * (int) TranspositionTable.value(entry);
+					int bound = whiteSide(TranspositionTable.bound(entry), whiteTurn);
+					if (bound == TranspositionTable.EXACT
+							|| (bound == TranspositionTable.LOWER && value >= beta)
+							|| (bound == TranspositionTable.UPPER && value <= alpha))
+						return value;
+				}
+				hashMove = TranspositionTable.move(entry);
+			}
+		}
+		if (ply == 0 && pvMove != TranspositionTable.NO_MOVE)
+			hashMove = pvMove;
+
+		long validMoves = pos.legalMoves(whiteTurn);
+		if (validMoves == 0) {
+			if (pos.legalMoves(!whiteTurn) == 0)
+				return sign * (int) gameOverValue(pos);
+			if (searchDepth == 0)
+				return sign * pos.discDifference();
+			return -pvs(pos, !whiteTurn, searchDepth, ply + 1, -beta, -alpha);
+		}
+		if (searchDepth == 0)
+			return sign * pos.discDifference();
+
+		int alphaIn = alpha;
+		int best = -INFINITE_SCORE;
+		int bestMove = TranspositionTable.NO_MOVE;
+		int count = orderMoves(validMoves, hashMove, ply, whiteTurn);
+		for (int i = 0; i < count; i++) {
+			int square = moveBuffer[ply][pickNext(ply, i, count)];
+			long move = 1L << square;
+			long flipped = pos.play(move, whiteTurn);
+			int score;
+			if (i == 0) {
+				score = -pvs(pos, !whiteTurn, searchDepth-1, ply + 1, -beta, -alpha);
+			} else {
+				// Scores are integers, so (alpha, alpha + 1) only asks whether it beats alpha
+				score = -pvs(pos, !whiteTurn, searchDepth-1, ply + 1, -alpha - 1, -alpha);
+				if (score > alpha && score < beta)
+					score = -pvs(pos, !whiteTurn, searchDepth-1, ply + 1, -beta, -score);
+			}
+			pos.undo(move, flipped, whiteTurn);
+			if (score > best) {
+				best = score;
+				bestMove = square;
+				if (ply == 0) {
+					rootMove = square;
+					rootProven = score > alpha;
+				}
+			}
+			if (best >= beta) {
+				rememberCutoff(bestMove, hashMove, searchDepth, ply, whiteTurn);
+				break;
+			}
+			alpha = Math.max(alpha, best);
+		}
+		if (searchDepth >= OthelloSolver.TT_MIN_DEPTH) {
+			int bound = (best <= alphaIn) ? TranspositionTable.UPPER
+					: (best >= beta) ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+			table.store(key, sign * best, searchDepth, whiteSide(bound, whiteTurn), bestMove);
+		}
+		return best;
+	}
+
+	/** Negating a score turns a lower bound into an upper one, so black's bounds swap either way */
+	private static int whiteSide(int bound, boolean whiteTurn) {
+		if (whiteTurn || bound == TranspositionTable.EXACT)
+			return bound;
+		return (bound == TranspositionTable.LOWER) ? TranspositionTable.UPPER : TranspositionTable.LOWER;
+	}
+
+	// What evaluationFunction gives a finished game: the winner's WIN_VAL, or 0 for a tie
+	static float gameOverValue(Position pos) {
+		int difference = pos.discDifference();
+		if (difference > 0)
+			return OthelloSolver.WIN_VAL;
+		return (difference < 0) ? -OthelloSolver.WIN_VAL : 0;
+	}
+
+/*------------------- Move ordering ------------------*/
+
+	/** Writes the moves of `validMoves` and their ordering scores into the ply's buffers; returns how many */
+	private int orderMoves(long validMoves, int hashMove, int ply, boolean whiteTurn) {
+		int[] moves = moveBuffer[ply];
+		int[] scores = scoreBuffer[ply];
+		int[] hist = history[whiteTurn ? 0 : 1];
+		int count = 0;
+		for (long m = validMoves; m != 0; m &= m - 1) {
+			int square = Long.numberOfTrailingZeros(m);
+			long bit = m & -m;
+			int score;
+			if (square == hashMove)
+				score = HASH_MOVE_SCORE;
+			else if (square == killers[ply][0])
+				score = KILLER_SCORE;
+			else if (square == killers[ply][1])
+				score = KILLER_SCORE - 1;
+			else if ((bit & CORNERS) != 0)
+				score = PRIOR + hist[square];
+			else if ((bit & X_SQUARES) != 0)
+				score = -PRIOR + hist[square];
+			else
+				score = hist[square];
+			moves[count] = square;
+			scores[count] = score;
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Swaps the best-scored of entries i..count-1 into slot i and returns i.
+	 * Selection rather than a full sort, since a cutoff often comes after one or two.
+	 */
+	private int pickNext(int ply, int i, int count) {
+		int[] moves = moveBuffer[ply];
+		int[] scores = scoreBuffer[ply];
+		int best = i;
+		for (int j = i + 1; j < count; j++) {
+			if (scores[j] > scores[best])
+				best = j;
+		}
+		int m = moves[i], s = scores[i];
+		moves[i] = moves[best];
+		scores[i] = scores[best];
+		moves[best] = m;
+		scores[best] = s;
+		return i;
+	}
+
+	private void rememberCutoff(int move, int hashMove, int searchDepth, int ply, boolean whiteTurn) {
+		history[whiteTurn ? 0 : 1][move] += searchDepth * searchDepth;
+		if (history[whiteTurn ? 0 : 1][move] > HISTORY_LIMIT)
+			ageHistory();
+		if (move != hashMove && move != killers[ply][0]) {
+			killers[ply][1] = killers[ply][0];
+			killers[ply][0] = move;
+		}
+	}
+
+	/** Halves every history score, so later iterations count more than earlier ones */
+	private void ageHistory() {
+		for (int[] side : history) {
+			for (int square = 0; square < side.length; square++) {
+				side[square] >>= 1;
+			}
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package com;
+
+/**
+ * Fixed-size transposition table for the alpha-beta search, keyed by the
+ * Zobrist hash of a position and the side to move (see Position.key).
+ *
+ * One slot per key, found from its low bits; 2^bits slots in two primitive
+ * arrays, one for the full key (see below) and one packing everything else:
+ *
+ *     bits  0-31  value, as float bits
+ *     bits 32-39  remaining depth the value was searched to
+ *     bits 40-41  bound: EXACT, LOWER or UPPER
+ *     bits 42-48  best move as a square index, NO_MOVE for none
+ *     bits 49-56  generation of the search that stored it
+ *
+ * A store only replaces an entry for the same position, from an older search,
+ * or searched no deeper than the new one, so the expensive deep results stay.
+ * Bound codes start at 1, so a packed entry is never 0 and 0 can mean a miss.
+ *
+ * Lazy SMP threads share one table without locks. The key slot holds the key
+ * XORed with the entry, so a probe that sees one thread's key next to another
+ * thread's entry finds they do not match and treats it as a miss; each long
+ * itself is written whole on a 64-bit JVM. Such a lost store only costs a
+ * re-search. The generation is a plain field, shared the same way: it is only
+ * changed by newSearch, which must not run while any thread is searching the
+ * table. Starting the threads after it (as LazySmp does) publishes the value.
+ */
+final class TranspositionTable {
+	static final int EXACT = 1, LOWER = 2, UPPER = 3;
+	static final int NO_MOVE = 64;
+	/** probe() result for a position that is not in the table */
+	static final long MISS = 0;
+
+	private final long[] keys;
+	private final long[] entries;
+	private final int mask;
+	// Only written by newSearch, between searches; see the class doc
+	private int generation;
+
+	TranspositionTable(int bits) {
+		keys = new long[1 << bits];
+		entries = new long[1 << bits];
+		mask = (1 << bits) - 1;
+	}
+
+	/**
+	 * Called at the start of every top-level search, so its stores can replace older
+	 * entries; never while a thread is searching the table
+	 */
+	void newSearch() {
+		generation = (generation + 1) & 0xFF;
+	}
+
+	static long entry(float value, int depth, int bound, int move, int generation) {
+		return (Float.floatToRawIntBits(value) & 0xFFFFFFFFL) | ((long) depth << 32) | ((long) bound << 40)
+				| ((long) move << 42) | ((long) generation << 49);
+	}
+
+	static float value(long entry) {
+		return Float.intBitsToFloat((int) entry);
+	}
+
+	static int depth(long entry) {
+		return (int) (entry >>> 32) & 0xFF;
+	}
+
+	static int bound(long entry) {
+		return (int) (entry >>> 40) & 0x3;
+	}
+
+	static int move(long entry) {
+		return (int) (entry >>> 42) & 0x7F;
+	}
+
+	private static int generation(long entry) {
+		return (int) (entry >>> 49) & 0xFF;
+	}
+
+	/** The entry for a key, or MISS */
+	long probe(long key) {
+		int i = (int) key & mask;
+		long entry = entries[i];
+		return ((keys[i] ^ entry) == key) ? entry : MISS;
+	}
+
+	void store(long key, float value, int depth, int bound, int move) {
+		int i = (int) key & mask;
+		long old = entries[i];
+		if (old != MISS && (keys[i] ^ old) != key && generation(old) == generation && depth(old) > depth)
+			return;
+		long entry = entry(value, depth, bound, move, generation);
+		keys[i] = key ^ entry;
+		entries[i] = entry;
+	}
+
+	void clear() {
+		java.util.Arrays.fill(keys, 0);
+		java.util.Arrays.fill(entries, MISS);
+	}
+}